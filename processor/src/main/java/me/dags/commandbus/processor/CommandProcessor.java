@@ -0,0 +1,240 @@
+package me.dags.commandbus.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Validates @Command methods at compile time and writes, per plugin:
+ * - META-INF/commandbus/{plugin}.index - the classes declaring commands, loaded by CommandBus#registerIndexed()
+ * - META-INF/commandbus/{plugin}.md - a markdown table of the commands
+ *
+ * The plugin id is read from the @Plugin annotation being compiled, or from the 'commandbus.plugin' option.
+ * Annotations are matched by name so that both the original & the relocated (shaded) library packages work.
+ *
+ * @author dags <dags@dags.me>
+ */
+@SupportedOptions(CommandProcessor.PLUGIN_OPTION)
+public class CommandProcessor extends AbstractProcessor {
+
+    static final String PLUGIN_OPTION = "commandbus.plugin";
+
+    private static final String PLUGIN = "org.spongepowered.api.plugin.Plugin";
+    private static final List<String> PACKAGES = Arrays.asList("me.dags.command.annotation.", "me.dags.commandbus.annotation.");
+
+    private final Set<String> classes = new TreeSet<>();
+    private final Map<String, List<Doc>> docs = new TreeMap<>();
+    private String pluginId = null;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        Set<String> types = new HashSet<>();
+        types.add(PLUGIN);
+        for (String pkg : PACKAGES) {
+            types.add(pkg + "Command");
+        }
+        return types;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (TypeElement annotation : annotations) {
+            String name = annotation.getQualifiedName().toString();
+            for (Element element : round.getElementsAnnotatedWith(annotation)) {
+                if (name.equals(PLUGIN)) {
+                    pluginId = value(element, PLUGIN, "id").orElse(pluginId);
+                } else if (element.getKind() == ElementKind.METHOD) {
+                    visit((ExecutableElement) element);
+                }
+            }
+        }
+
+        if (round.processingOver() && !classes.isEmpty()) {
+            write();
+        }
+
+        return false;
+    }
+
+    private void visit(ExecutableElement method) {
+        TypeElement owner = (TypeElement) method.getEnclosingElement();
+        String permission = annotation(method, "Permission").map(a -> value(a, "value").orElse("")).orElse(null);
+        String description = annotation(method, "Description").flatMap(a -> value(a, "value")).orElse("");
+        List<String> flags = new ArrayList<>();
+        annotation(method, "Flag").flatMap(a -> value(a, "value")).ifPresent(flags::add);
+
+        for (String value : values(method, "Command")) {
+            Usage usage = new Usage(value);
+            for (String error : usage.getErrors()) {
+                error(method, "%s in @Command(\"%s\")", error, value);
+            }
+
+            int parameters = 0;
+            for (VariableElement parameter : method.getParameters()) {
+                if (!annotation(parameter, "Src").isPresent() && !isFlags(parameter)) {
+                    parameters++;
+                }
+            }
+            if (usage.getErrors().isEmpty() && parameters != usage.getArguments().size()) {
+                error(method, "@Command(\"%s\") declares %s argument(s) but the method accepts %s", value, usage.getArguments().size(), parameters);
+            }
+
+            docs.computeIfAbsent(usage.getAlias(), k -> new ArrayList<>()).add(new Doc(usage.getValue(), permission, description, flags));
+        }
+
+        classes.add(processingEnv.getElementUtils().getBinaryName(owner).toString());
+    }
+
+    private void write() {
+        String id = processingEnv.getOptions().getOrDefault(PLUGIN_OPTION, pluginId);
+        if (id == null || id.isEmpty()) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "No @Plugin id found, set the '" + PLUGIN_OPTION + "' option to generate the command index");
+            return;
+        }
+
+        try {
+            FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", "META-INF/commandbus/" + id + ".index");
+            try (Writer writer = index.openWriter()) {
+                for (String name : classes) {
+                    writer.write(name);
+                    writer.write('\n');
+                }
+            }
+
+            FileObject markdown = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", "META-INF/commandbus/" + id + ".md");
+            try (Writer writer = markdown.openWriter()) {
+                writer.write("| Command | Permission | Description | Flags |\n");
+                writer.write("| :------ | :--------- | :---------- | :---- |\n");
+                for (List<Doc> command : docs.values()) {
+                    command.sort(null);
+                    for (Doc doc : command) {
+                        doc.write(writer);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write command index: " + e.getMessage());
+        }
+    }
+
+    private void error(Element element, String format, Object... args) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(format, args), element);
+    }
+
+    private static boolean isFlags(VariableElement parameter) {
+        String type = parameter.asType().toString();
+        return type.equals("me.dags.command.command.Flags") || type.equals("me.dags.commandbus.command.Flags");
+    }
+
+    private static Optional<AnnotationMirror> annotation(Element element, String simpleName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            String name = mirror.getAnnotationType().toString();
+            for (String pkg : PACKAGES) {
+                if (name.equals(pkg + simpleName)) {
+                    return Optional.of(mirror);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<String> value(Element element, String type, String key) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().toString().equals(type)) {
+                return value(mirror, key);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<String> value(AnnotationMirror mirror, String key) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : mirror.getElementValues().entrySet()) {
+            if (e.getKey().getSimpleName().contentEquals(key)) {
+                Object value = e.getValue().getValue();
+                if (value instanceof List) {
+                    List<?> list = (List<?>) value;
+                    return list.isEmpty() ? Optional.empty() : Optional.of(String.valueOf(((AnnotationValue) list.get(0)).getValue()));
+                }
+                return Optional.of(String.valueOf(value));
+            }
+        }
+        return Optional.empty();
+    }
+
+    // @Command values, which may be declared as a single string or an array
+    private static List<String> values(Element element, String simpleName) {
+        Optional<AnnotationMirror> mirror = annotation(element, simpleName);
+        if (!mirror.isPresent()) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : mirror.get().getElementValues().entrySet()) {
+            if (e.getKey().getSimpleName().contentEquals("value")) {
+                Object value = e.getValue().getValue();
+                if (value instanceof List) {
+                    for (Object item : (List<?>) value) {
+                        values.add(String.valueOf(((AnnotationValue) item).getValue()));
+                    }
+                } else {
+                    values.add(String.valueOf(value));
+                }
+            }
+        }
+        return values;
+    }
+
+    private static class Doc implements Comparable<Doc> {
+
+        private final String usage;
+        private final String permission;
+        private final String description;
+        private final List<String> flags;
+
+        private Doc(String usage, String permission, String description, List<String> flags) {
+            this.usage = usage;
+            this.permission = permission;
+            this.description = description;
+            this.flags = flags;
+        }
+
+        private void write(Writer writer) throws IOException {
+            // an empty @Permission is named by CommandBus at runtime, so it can't be shown here
+            String perm = permission == null ? "" : permission.isEmpty() ? "*(generated)*" : "`" + permission + "`";
+            String flag = flags.isEmpty() ? "" : "`-" + String.join("` `-", flags) + "`";
+            writer.write(String.format("| `/%s` | %s | %s | %s |\n", usage, perm, description.replace("|", "\\|"), flag));
+        }
+
+        @Override
+        public int compareTo(Doc other) {
+            return usage.compareTo(other.usage);
+        }
+    }
+}
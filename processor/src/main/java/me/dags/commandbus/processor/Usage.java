@@ -0,0 +1,78 @@
+package me.dags.commandbus.processor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import me.dags.commandbus.UsageToken;
+
+/**
+ * A tokenized command usage string, e.g. "example tp <player> <world>".
+ *
+ * @author dags <dags@dags.me>
+ */
+class Usage {
+
+    private final String value;
+    private final List<String> literals = new ArrayList<>();
+    private final List<String> arguments = new ArrayList<>();
+    private final List<String> errors = new ArrayList<>();
+
+    Usage(String value) {
+        this.value = value.trim();
+        if (this.value.isEmpty()) {
+            errors.add("Command usage is empty");
+            return;
+        }
+
+        Set<String> names = new HashSet<>();
+        boolean flags = false;
+        for (String token : this.value.split(" +")) {
+            UsageToken.Kind kind = UsageToken.of(token);
+            if (kind == UsageToken.Kind.FLAG) {
+                flags = true;
+                continue;
+            }
+            if (kind == UsageToken.Kind.LITERAL) {
+                if (!arguments.isEmpty() || flags) {
+                    errors.add("Literal '" + token + "' follows an argument or flag");
+                }
+                literals.add(token);
+                continue;
+            }
+
+            char open = token.charAt(0);
+            char close = open == '<' ? '>' : open == '[' ? ']' : ')';
+            if (token.length() < 3 || token.charAt(token.length() - 1) != close) {
+                errors.add("Malformed argument '" + token + "'");
+                continue;
+            }
+
+            String name = token.substring(1, token.length() - 1);
+            if (!names.add(name)) {
+                errors.add("Duplicate argument '" + name + "'");
+            }
+            arguments.add(name);
+        }
+
+        if (literals.isEmpty()) {
+            errors.add("Command usage must start with the command alias");
+        }
+    }
+
+    String getValue() {
+        return value;
+    }
+
+    String getAlias() {
+        return literals.isEmpty() ? "" : literals.get(0);
+    }
+
+    List<String> getArguments() {
+        return arguments;
+    }
+
+    List<String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,54 @@
+package me.dags.commandbus;
+
+import com.flowpowered.math.vector.Vector3d;
+import com.flowpowered.math.vector.Vector3i;
+import me.dags.command.annotation.Command;
+import me.dags.command.annotation.Description;
+import me.dags.command.annotation.Permission;
+import me.dags.command.annotation.Src;
+import org.spongepowered.api.block.BlockType;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.entity.living.player.User;
+import org.spongepowered.api.world.World;
+
+/**
+ * @author dags <dags@dags.me>
+ */
+public class BenchCommands {
+
+    @Permission
+    @Description("Benchmark player & world arguments")
+    @Command("bench tp <player> <world>")
+    public void tp(@Src CommandSource src, Player player, World world) {
+
+    }
+
+    @Permission
+    @Description("Benchmark user arguments")
+    @Command("bench user <user>")
+    public void user(@Src CommandSource src, User user) {
+
+    }
+
+    @Permission
+    @Description("Benchmark catalog type arguments")
+    @Command("bench block <block>")
+    public void block(@Src CommandSource src, BlockType... blocks) {
+
+    }
+
+    @Permission
+    @Description("Benchmark integer vector arguments")
+    @Command("bench pos <pos>")
+    public void pos(@Src CommandSource src, Vector3i pos) {
+
+    }
+
+    @Permission
+    @Description("Benchmark decimal vector arguments")
+    @Command("bench vec <vec>")
+    public void vec(@Src CommandSource src, Vector3d vec) {
+
+    }
+}
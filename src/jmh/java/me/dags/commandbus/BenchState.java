@@ -0,0 +1,54 @@
+package me.dags.commandbus;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.spongepowered.api.block.BlockType;
+import org.spongepowered.api.command.CommandCallable;
+import org.spongepowered.api.entity.living.player.Player;
+
+/**
+ * @author dags <dags@dags.me>
+ */
+@State(Scope.Benchmark)
+public class BenchState {
+
+    @Param("400")
+    public int players;
+
+    @Param("200000")
+    public int users;
+
+    @Param("1000")
+    public int catalogs;
+
+    @Param("8")
+    public int worlds;
+
+    StubServer server;
+    CommandCallable command;
+    Player source;
+    String player;
+    String user;
+    String world;
+    String block;
+
+    @Setup
+    public void setup() throws Exception {
+        server = new StubServer(players, users, worlds, catalogs, BlockType.class);
+
+        CommandBus bus = CommandBus.builder().owner(server.plugin).build();
+        bus.register(new BenchCommands());
+        bus.submit();
+
+        Random random = new Random(1);
+        command = server.getCommand("bench");
+        source = server.players.get(random.nextInt(players));
+        player = "player" + random.nextInt(players);
+        user = "user" + (players + random.nextInt(Math.max(1, users - players)));
+        world = "world" + random.nextInt(worlds);
+        block = "blocktype_" + random.nextInt(catalogs);
+    }
+}
@@ -0,0 +1,59 @@
+package me.dags.commandbus;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * @author dags <dags@dags.me>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CommandBenchmark {
+
+    @Benchmark
+    public Object process(BenchState state) throws Exception {
+        return state.command.process(state.source, "tp " + state.player + " " + state.world);
+    }
+
+    @Benchmark
+    public Object processVarargs(BenchState state) throws Exception {
+        return state.command.process(state.source, "block " + state.block + " " + state.block + " " + state.block);
+    }
+
+    @Benchmark
+    public Object processFailure(BenchState state) {
+        try {
+            return state.command.process(state.source, "tp nobody " + state.world);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object suggestPlayer(BenchState state) throws Exception {
+        return state.command.getSuggestions(state.source, "tp play", null);
+    }
+
+    @Benchmark
+    public Object suggestUser(BenchState state) throws Exception {
+        return state.command.getSuggestions(state.source, "user us", null);
+    }
+
+    @Benchmark
+    public Object suggestBlock(BenchState state) throws Exception {
+        return state.command.getSuggestions(state.source, "block blocktype_1", null);
+    }
+
+    @Benchmark
+    public Object help(BenchState state) {
+        return state.command.getHelp(state.source);
+    }
+
+    @Benchmark
+    public Object shortDescription(BenchState state) {
+        return state.command.getShortDescription(state.source);
+    }
+}
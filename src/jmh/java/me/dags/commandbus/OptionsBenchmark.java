@@ -0,0 +1,86 @@
+package me.dags.commandbus;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.spongepowered.api.block.BlockType;
+
+/**
+ * @author dags <dags@dags.me>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OptionsBenchmark {
+
+    // the limit completion runs with by default
+    private static final int LIMIT = 100;
+
+    private PrefixOptions blocks;
+
+    @Setup
+    public void setup() {
+        blocks = SpongeOptions.catalogType(BlockType.class);
+    }
+
+    @Benchmark
+    public long players(BenchState state) {
+        return SpongeOptions.PLAYERS.get().count();
+    }
+
+    @Benchmark
+    public long selection(BenchState state) {
+        return SpongeOptions.SELECTION.get().count();
+    }
+
+    @Benchmark
+    public long users(BenchState state) {
+        return SpongeOptions.USERS.get().limit(100).count();
+    }
+
+    @Benchmark
+    public long worlds(BenchState state) {
+        return SpongeOptions.WORLDS.get().count();
+    }
+
+    @Benchmark
+    public long catalogType(BenchState state) {
+        return blocks.get().count();
+    }
+
+    // completion runs options under a Context holding the partial argument & the suggestion limit
+
+    @Benchmark
+    public long playersCompletion(BenchState state) {
+        return complete(state, SpongeOptions.PLAYERS, "player1");
+    }
+
+    @Benchmark
+    public long selectionCompletion(BenchState state) {
+        return complete(state, SpongeOptions.SELECTION, "player1");
+    }
+
+    @Benchmark
+    public long usersCompletion(BenchState state) {
+        return complete(state, SpongeOptions.USERS, "user1");
+    }
+
+    @Benchmark
+    public long worldsCompletion(BenchState state) {
+        return complete(state, SpongeOptions.WORLDS, "world");
+    }
+
+    @Benchmark
+    public long catalogTypeCompletion(BenchState state) {
+        return complete(state, blocks, "blocktype_1");
+    }
+
+    private static long complete(BenchState state, PrefixOptions options, String prefix) {
+        return Context.of(state.source).forCompletion(prefix, LIMIT).supply(() -> options.get().count());
+    }
+}
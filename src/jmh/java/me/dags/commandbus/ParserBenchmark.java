@@ -0,0 +1,89 @@
+package me.dags.commandbus;
+
+import java.util.concurrent.TimeUnit;
+import me.dags.command.command.Input;
+import me.dags.command.element.function.ValueParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.spongepowered.api.block.BlockType;
+
+/**
+ * @author dags <dags@dags.me>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParserBenchmark {
+
+    private ValueParser<Object> blocks;
+
+    @Setup
+    public void setup() {
+        blocks = SpongeParsers.catalogType(BlockType.class);
+    }
+
+    @Benchmark
+    public Object player(BenchState state) throws Exception {
+        return SpongeParsers.PLAYER.parse(state.player);
+    }
+
+    @Benchmark
+    public Object selectionName(BenchState state) throws Exception {
+        return SpongeParsers.SELECTION.parse(state.player);
+    }
+
+    @Benchmark
+    public Object selectionAll() throws Exception {
+        return SpongeParsers.SELECTION.parse("@a");
+    }
+
+    @Benchmark
+    public Object selectionNearest(BenchState state) throws Exception {
+        return Context.of(state.source).call(() -> SpongeParsers.SELECTION.parse("@p[r=64]"));
+    }
+
+    @Benchmark
+    public Object user(BenchState state) throws Exception {
+        return SpongeParsers.USER.parse(state.user);
+    }
+
+    @Benchmark
+    public Object world(BenchState state) throws Exception {
+        return SpongeParsers.WORLD.parse(state.world);
+    }
+
+    @Benchmark
+    public Object catalogType(BenchState state) throws Exception {
+        return blocks.parse(state.block);
+    }
+
+    @Benchmark
+    public Object integer() throws Exception {
+        return SpongeParsers.INT.parse("-1024");
+    }
+
+    @Benchmark
+    public Object longInteger() throws Exception {
+        return SpongeParsers.LONG.parse("9007199254740993");
+    }
+
+    @Benchmark
+    public Object decimal() throws Exception {
+        return SpongeParsers.DOUBLE.parse("-1024.25");
+    }
+
+    @Benchmark
+    public Object vec3i() throws Exception {
+        return SpongeParsers.VEC3I.parse(new Input("12 -64 1024"));
+    }
+
+    @Benchmark
+    public Object vec3d() throws Exception {
+        return SpongeParsers.VEC3D.parse(new Input("12.5 -64 1024.25"));
+    }
+}
@@ -0,0 +1,105 @@
+package me.dags.commandbus;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A lightweight stand-in for a Sponge API interface. Methods are answered by name from the provided handlers,
+ * falling back to 'empty' values (or the proxy itself, for fluent builders).
+ *
+ * @author dags <dags@dags.me>
+ */
+class Stub implements InvocationHandler {
+
+    /**
+     * Handlers may return this to have the proxy itself returned.
+     */
+    static final Object SELF = new Object();
+
+    private static final Map<Class<?>, Object> primitives = new HashMap<>();
+
+    static {
+        primitives.put(boolean.class, false);
+        primitives.put(byte.class, (byte) 0);
+        primitives.put(short.class, (short) 0);
+        primitives.put(char.class, (char) 0);
+        primitives.put(int.class, 0);
+        primitives.put(long.class, 0L);
+        primitives.put(float.class, 0F);
+        primitives.put(double.class, 0D);
+    }
+
+    private final Class<?> type;
+    private final Map<String, Function<Object[], Object>> handlers = new HashMap<>();
+
+    private Stub(Class<?> type) {
+        this.type = type;
+    }
+
+    Stub on(String method, Function<Object[], Object> handler) {
+        handlers.put(method, handler);
+        return this;
+    }
+
+    Stub returns(String method, Object value) {
+        return on(method, args -> value);
+    }
+
+    <T> T build() {
+        @SuppressWarnings("unchecked")
+        T proxy = (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, this);
+        return proxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        Function<Object[], Object> handler = handlers.get(method.getName());
+        if (handler != null) {
+            Object result = handler.apply(args == null ? new Object[0] : args);
+            return result == SELF ? proxy : result;
+        }
+
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return type.getSimpleName();
+        }
+
+        Class<?> returnType = method.getReturnType();
+        if (returnType.isPrimitive()) {
+            return primitives.get(returnType);
+        }
+        if (returnType.isInstance(proxy)) {
+            return proxy;
+        }
+        if (returnType == Optional.class) {
+            return Optional.empty();
+        }
+        if (returnType == Stream.class) {
+            return Stream.empty();
+        }
+        if (returnType == Set.class) {
+            return Collections.emptySet();
+        }
+        if (returnType.isAssignableFrom(List.class)) {
+            return Collections.emptyList();
+        }
+        return null;
+    }
+
+    static Stub of(Class<?> type) {
+        return new Stub(type);
+    }
+}
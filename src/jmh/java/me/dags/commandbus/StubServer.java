@@ -0,0 +1,217 @@
+package me.dags.commandbus;
+
+import com.flowpowered.math.vector.Vector3d;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.slf4j.helpers.NOPLogger;
+import org.spongepowered.api.CatalogType;
+import org.spongepowered.api.Game;
+import org.spongepowered.api.GameRegistry;
+import org.spongepowered.api.Server;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.command.CommandCallable;
+import org.spongepowered.api.command.CommandManager;
+import org.spongepowered.api.entity.Transform;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.entity.living.player.User;
+import org.spongepowered.api.event.EventManager;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.profile.GameProfile;
+import org.spongepowered.api.scheduler.Scheduler;
+import org.spongepowered.api.scheduler.Task;
+import org.spongepowered.api.service.ServiceManager;
+import org.spongepowered.api.service.permission.PermissionDescription;
+import org.spongepowered.api.service.permission.PermissionService;
+import org.spongepowered.api.service.user.UserStorageService;
+import org.spongepowered.api.world.Location;
+import org.spongepowered.api.world.World;
+
+/**
+ * Installs local stand-ins for the Sponge Server, UserStorageService and GameRegistry so that CommandBus can be
+ * exercised outside of a running game.
+ *
+ * Scheduled tasks are run immediately on the calling thread.
+ *
+ * @author dags <dags@dags.me>
+ */
+class StubServer {
+
+    final PluginContainer plugin;
+    final List<Player> players = new ArrayList<>();
+    final List<GameProfile> profiles = new ArrayList<>();
+    final List<World> worlds = new ArrayList<>();
+    final Map<Class<?>, List<CatalogType>> catalogs = new HashMap<>();
+    final Map<String, CommandCallable> commands = new HashMap<>();
+
+    private final Map<UUID, Player> playersById = new HashMap<>();
+
+    StubServer(int players, int users, int worlds, int catalogs, Class<?>... catalogTypes) throws IOException {
+        Path dir = Files.createTempDirectory("commandbus-jmh");
+
+        // players are spread across every world, so there is always at least one
+        for (int i = 0; i < Math.max(1, worlds); i++) {
+            String name = "world" + i;
+            this.worlds.add(Stub.of(World.class).returns("getName", name).returns("getUniqueId", UUID.randomUUID()).build());
+        }
+
+        for (int i = 0; i < players; i++) {
+            World world = this.worlds.get(i % this.worlds.size());
+            Vector3d position = new Vector3d((i % 64) * 16, 64, (i / 64) * 16);
+            Player player = player("player" + i, UUID.randomUUID(), world, position);
+            this.players.add(player);
+            this.playersById.put(player.getUniqueId(), player);
+        }
+
+        for (Player player : this.players) {
+            this.profiles.add(profile(player.getName(), player.getUniqueId()));
+        }
+
+        for (int i = players; i < users; i++) {
+            this.profiles.add(profile("user" + i, UUID.randomUUID()));
+        }
+
+        for (Class<?> type : catalogTypes) {
+            List<CatalogType> values = new ArrayList<>();
+            for (int i = 0; i < catalogs; i++) {
+                String id = "minecraft:" + type.getSimpleName().toLowerCase() + "_" + i;
+                values.add(Stub.of(type).returns("getId", id).returns("getName", id).build());
+            }
+            this.catalogs.put(type, values);
+        }
+
+        this.plugin = Stub.of(PluginContainer.class)
+                .returns("getId", "bench")
+                .returns("getName", "Bench")
+                .returns("getLogger", NOPLogger.NOP_LOGGER)
+                .build();
+
+        Server server = Stub.of(Server.class)
+                .returns("isMainThread", true)
+                .returns("getOnlinePlayers", this.players)
+                .returns("getWorlds", this.worlds)
+                .on("getPlayer", args -> args[0] instanceof UUID ? Optional.ofNullable(playersById.get(args[0])) : Optional.empty())
+                .on("getWorld", args -> this.worlds.stream().filter(world -> args[0].equals(world.getName()) || args[0].equals(world.getUniqueId())).findFirst())
+                .build();
+
+        Game game = Stub.of(Game.class)
+                .returns("getServer", server)
+                .returns("isServerAvailable", true)
+                .returns("getGameDirectory", dir)
+                .build();
+
+        GameRegistry registry = Stub.of(GameRegistry.class)
+                .on("getAllOf", args -> this.catalogs.getOrDefault(args[0], new ArrayList<>()))
+                .on("getType", args -> this.catalogs.getOrDefault(args[0], new ArrayList<>()).stream()
+                        .filter(type -> type.getId().equalsIgnoreCase("minecraft:" + args[1]) || type.getId().equalsIgnoreCase((String) args[1]))
+                        .findFirst())
+                .build();
+
+        UserStorageService users = Stub.of(UserStorageService.class)
+                .returns("getAll", this.profiles)
+                .on("match", args -> this.profiles.stream()
+                        .filter(profile -> profile.getName().get().toLowerCase().startsWith(((String) args[0]).toLowerCase()))
+                        .collect(Collectors.toList()))
+                .on("get", args -> this.profiles.stream()
+                        .filter(profile -> profile.getUniqueId().equals(args[0] instanceof GameProfile ? ((GameProfile) args[0]).getUniqueId() : args[0]))
+                        .findFirst()
+                        .map(profile -> user(profile.getName().get(), profile.getUniqueId())))
+                .build();
+
+        PermissionService permissions = Stub.of(PermissionService.class)
+                .on("newDescriptionBuilder", args -> Stub.of(PermissionDescription.Builder.class).build())
+                .build();
+
+        ServiceManager services = Stub.of(ServiceManager.class)
+                .on("provideUnchecked", args -> args[0] == UserStorageService.class ? users : permissions)
+                .on("provide", args -> Optional.of(args[0] == UserStorageService.class ? users : permissions))
+                .build();
+
+        CommandManager commands = Stub.of(CommandManager.class)
+                .on("register", args -> {
+                    for (Object alias : (Collection<?>) args[2]) {
+                        this.commands.put((String) alias, (CommandCallable) args[1]);
+                    }
+                    return Optional.empty();
+                })
+                .build();
+
+        Scheduler scheduler = Stub.of(Scheduler.class).on("createTaskBuilder", args -> task()).build();
+        EventManager events = Stub.of(EventManager.class).build();
+
+        inject("game", game);
+        inject("registry", registry);
+        inject("serviceManager", services);
+        inject("commandManager", commands);
+        inject("scheduler", scheduler);
+        inject("eventManager", events);
+    }
+
+    CommandCallable getCommand(String alias) {
+        return commands.get(alias);
+    }
+
+    private Player player(String name, UUID id, World world, Vector3d position) {
+        return Stub.of(Player.class)
+                .returns("getName", name)
+                .returns("getUniqueId", id)
+                .returns("getWorld", world)
+                .returns("getTransform", new Transform<>(world, position))
+                .returns("getLocation", new Location<>(world, position))
+                .returns("getIdentifier", id.toString())
+                .returns("isOnline", true)
+                .returns("hasPermission", true)
+                .build();
+    }
+
+    private static User user(String name, UUID id) {
+        return Stub.of(User.class)
+                .returns("getName", name)
+                .returns("getUniqueId", id)
+                .returns("getIdentifier", id.toString())
+                .returns("hasPermission", true)
+                .build();
+    }
+
+    private static GameProfile profile(String name, UUID id) {
+        return Stub.of(GameProfile.class)
+                .returns("getName", Optional.of(name))
+                .returns("getUniqueId", id)
+                .build();
+    }
+
+    private static Task.Builder task() {
+        Object[] task = new Object[1];
+        return Stub.of(Task.Builder.class)
+                .on("execute", args -> {
+                    task[0] = args[0];
+                    return Stub.SELF;
+                })
+                .on("submit", args -> {
+                    if (task[0] instanceof Runnable) {
+                        ((Runnable) task[0]).run();
+                    }
+                    return null;
+                })
+                .build();
+    }
+
+    private static void inject(String name, Object value) {
+        try {
+            Field field = Sponge.class.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(null, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to inject Sponge." + name, e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package me.dags.commandbus;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
+import org.spongepowered.api.command.CommandException;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.text.Text;
+import org.spongepowered.api.text.format.TextColors;
+
+/**
+ * Runs command executors off the calling thread.
+ *
+ * The Command library parses arguments and invokes the executor in a single call, so both happen on the worker.
+ * CommandBus' parsers for types that read server state (players, worlds, selectors, coordinates) hand their work
+ * back to the server thread and wait for it; parsers registered by plugins must be thread-safe.
+ *
+ * The number of commands that may be queued or running at once is bounded both overall and per source. Commands
+ * submitted beyond those limits are rejected immediately. Errors are reported back to the source on the main thread.
+ *
+ * @author dags <dags@dags.me>
+ */
+class AsyncExecution {
+
+    private final int perSource;
+    private final Semaphore capacity;
+    private final ExecutorService executor;
+    private final Map<String, Integer> running = new ConcurrentHashMap<>();
+    private final BiConsumer<CommandSource, String> onComplete;
+
+    AsyncExecution(int threads, int capacity, int perSource, @Nullable BiConsumer<CommandSource, String> onComplete) {
+        this.perSource = perSource;
+        this.onComplete = onComplete;
+        this.capacity = new Semaphore(capacity);
+        this.executor = createExecutor(threads);
+    }
+
+    void execute(PluginContainer owner, SpongeCommand command, CommandSource source, String arguments) throws CommandException {
+        String id = source.getIdentifier();
+        if (running.merge(id, 1, Integer::sum) > perSource) {
+            release(id);
+            throw new CommandException(Text.of("You already have too many commands running"));
+        }
+
+        if (!capacity.tryAcquire()) {
+            release(id);
+            throw new CommandException(Text.of("The server is busy, please try again shortly"));
+        }
+
+        Context context = Context.of(source, command.getPermissions(source)).forWorker(owner);
+        try {
+            executor.execute(() -> {
+                try {
+                    context.call(() -> {
+                        command.dispatch(source, arguments);
+                        return null;
+                    });
+                    if (onComplete != null) {
+                        CommandBus.sync(owner, () -> onComplete.accept(source, command.getAlias() + " " + arguments));
+                    }
+                } catch (me.dags.command.command.CommandException e) {
+                    CommandBus.sync(owner, () -> source.sendMessage(Text.of(TextColors.RED, e.getMessage())));
+                } catch (Throwable t) {
+                    owner.getLogger().error("Error executing command /" + command.getAlias() + " " + arguments, t);
+                    CommandBus.sync(owner, () -> source.sendMessage(Text.of(TextColors.RED, "Error executing command")));
+                } finally {
+                    capacity.release();
+                    release(id);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            capacity.release();
+            release(id);
+            throw new CommandException(Text.of("The server is busy, please try again shortly"));
+        }
+    }
+
+    private void release(String id) {
+        running.computeIfPresent(id, (k, v) -> v <= 1 ? null : v - 1);
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        try {
+            // virtual threads are only present on newer runtimes
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads, new Workers("commandbus-executor"));
+        }
+    }
+}
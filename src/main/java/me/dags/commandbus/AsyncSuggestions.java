@@ -0,0 +1,165 @@
+package me.dags.commandbus;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.spongepowered.api.command.CommandException;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.text.Text;
+
+/**
+ * Computes command suggestions on a worker pool against a snapshot of the source's permissions and of the server
+ * state that parsers & options read (see {@link Snapshot}), so the workers never touch the server.
+ *
+ * The calling thread waits up to the configured time budget for a result. Requests that outlive the budget keep
+ * running and cache their result so that a repeated keystroke is answered from memory, unless a newer request
+ * from the same source arrives first, in which case they are cancelled.
+ *
+ * @author dags <dags@dags.me>
+ */
+class AsyncSuggestions {
+
+    private static final int CACHE_SIZE = 512;
+    private static final long CACHE_EXPIRY = TimeUnit.SECONDS.toNanos(5);
+    private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int QUEUE_SIZE = 64;
+    // bounded so that slow providers can't pile up work, requests beyond the queue are rejected
+    private static final ExecutorService workers = new ThreadPoolExecutor(
+            THREADS, THREADS,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_SIZE),
+            new Workers("commandbus-suggestions"),
+            new ThreadPoolExecutor.AbortPolicy()
+    );
+
+    private final long timeout;
+    private final Map<String, Future<List<String>>> pending = new ConcurrentHashMap<>();
+    private final Map<Key, Entry> cache = Collections.synchronizedMap(new LinkedHashMap<Key, Entry>(64, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    });
+
+    AsyncSuggestions(long timeout, TimeUnit unit) {
+        this.timeout = unit.toNanos(timeout);
+    }
+
+    List<String> suggest(SpongeCommand command, CommandSource source, String arguments) throws CommandException {
+        Set<String> permissions = command.getPermissions(source);
+        Key key = new Key(command, permissions, arguments);
+
+        Entry entry = cache.get(key);
+        if (entry != null && !entry.isExpired()) {
+            return entry.suggestions;
+        }
+
+        String id = source.getIdentifier();
+        Context context = Context.of(source, permissions).withSnapshot(Snapshot.of(source));
+        Request request = new Request(id, () -> {
+            List<String> suggestions = Collections.unmodifiableList(context.call(() -> command.suggest(source, arguments)));
+            cache.put(key, new Entry(suggestions));
+            return suggestions;
+        });
+
+        // a request stays pending until it completes, so a newer request from the same source cancels it
+        Future<List<String>> previous = pending.put(id, request);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+
+        try {
+            workers.execute(request);
+        } catch (RejectedExecutionException e) {
+            pending.remove(id, request);
+            return Collections.emptyList();
+        }
+
+        try {
+            return request.get(timeout, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | CancellationException e) {
+            return Collections.emptyList();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        } catch (ExecutionException e) {
+            throw new CommandException(Text.of("Error computing suggestions"), e.getCause());
+        }
+    }
+
+    private class Request extends FutureTask<List<String>> {
+
+        private final String source;
+
+        private Request(String source, Callable<List<String>> task) {
+            super(task);
+            this.source = source;
+        }
+
+        @Override
+        protected void done() {
+            pending.remove(source, this);
+        }
+    }
+
+    private static class Key {
+
+        private final SpongeCommand command;
+        private final Set<String> permissions;
+        private final String arguments;
+        private final int hash;
+
+        private Key(SpongeCommand command, Set<String> permissions, String arguments) {
+            this.command = command;
+            this.permissions = permissions;
+            this.arguments = arguments;
+            this.hash = Objects.hash(command, permissions, arguments);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return command == key.command && permissions.equals(key.permissions) && arguments.equals(key.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class Entry {
+
+        private final List<String> suggestions;
+        private final long timestamp = System.nanoTime();
+
+        private Entry(List<String> suggestions) {
+            this.suggestions = suggestions;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - timestamp > CACHE_EXPIRY;
+        }
+    }
+}
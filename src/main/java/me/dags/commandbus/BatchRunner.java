@@ -0,0 +1,134 @@
+package me.dags.commandbus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.scheduler.Task;
+import org.spongepowered.api.text.Text;
+
+/**
+ * Runs a batch of commands on the server thread, a slice per tick, within a time budget per tick.
+ *
+ * Every entry is resolved to its command and checked against the command's usages up front; entries that cannot
+ * run are failed immediately and the rest are executed in submission order, so ordering per source is preserved.
+ * Commands are dispatched directly on the server thread, bypassing async execution & rate limits, so that each
+ * outcome reflects the command's real result.
+ *
+ * @author dags <dags@dags.me>
+ */
+class BatchRunner implements Consumer<Task> {
+
+    private final long budget;
+    private final Consumer<CommandBatch.Progress> progress;
+    private final CompletableFuture<List<CommandBatch.Outcome>> future = new CompletableFuture<>();
+
+    private final CommandBatch.Entry[] entries;
+    private final SpongeCommand[] commands;
+    private final String[] arguments;
+    private final CommandBatch.Outcome[] outcomes;
+    private int next = 0;
+    private int completed = 0;
+    private PluginContainer plugin;
+
+    BatchRunner(List<CommandBatch.Entry> entries, Map<String, SpongeCommand> commands, long budget, Consumer<CommandBatch.Progress> progress) {
+        this.budget = budget;
+        this.progress = progress;
+        this.entries = entries.toArray(new CommandBatch.Entry[0]);
+        this.commands = new SpongeCommand[this.entries.length];
+        this.arguments = new String[this.entries.length];
+        this.outcomes = new CommandBatch.Outcome[this.entries.length];
+
+        for (int i = 0; i < this.entries.length; i++) {
+            CommandBatch.Entry entry = this.entries[i];
+            String line = entry.getCommand().trim();
+            int space = line.indexOf(' ');
+            String alias = (space == -1 ? line : line.substring(0, space)).toLowerCase();
+            String args = space == -1 ? "" : line.substring(space + 1);
+
+            SpongeCommand command = commands.get(alias);
+            if (command == null) {
+                fail(i, Text.of("Unknown command '", alias, "'"));
+            } else if (!command.testPermission(entry.getSource())) {
+                fail(i, Text.of("You do not have permission to use this command"));
+            } else if (!command.accepts(args)) {
+                fail(i, Text.of("Unknown arguments '", args, "'. ", command.getUsage(entry.getSource())));
+            } else {
+                this.commands[i] = command;
+                this.arguments[i] = args;
+            }
+        }
+    }
+
+    CompletableFuture<List<CommandBatch.Outcome>> start(PluginContainer plugin) {
+        this.plugin = plugin;
+        if (completed == entries.length) {
+            complete();
+        } else {
+            Sponge.getScheduler().createTaskBuilder()
+                    .name("commandbus-batch")
+                    .intervalTicks(1)
+                    .execute(this)
+                    .submit(plugin);
+        }
+        return future;
+    }
+
+    @Override
+    public void accept(Task task) {
+        try {
+            long deadline = System.nanoTime() + budget;
+            // always make progress, even if a single command exceeds the budget
+            do {
+                run(next++);
+            } while (next < entries.length && System.nanoTime() < deadline && skipFailed());
+
+            progress.accept(new CommandBatch.Progress(completed, entries.length));
+        } catch (Throwable t) {
+            task.cancel();
+            future.completeExceptionally(t);
+            return;
+        }
+
+        if (completed == entries.length) {
+            task.cancel();
+            complete();
+        }
+    }
+
+    private boolean skipFailed() {
+        while (next < entries.length && outcomes[next] != null) {
+            next++;
+        }
+        return next < entries.length;
+    }
+
+    private void run(int i) {
+        if (outcomes[i] != null) {
+            return;
+        }
+        try {
+            commands[i].dispatch(entries[i].getSource(), arguments[i]);
+            outcomes[i] = new CommandBatch.Outcome(entries[i], null);
+        } catch (me.dags.command.command.CommandException e) {
+            outcomes[i] = new CommandBatch.Outcome(entries[i], Text.of(e.getMessage()));
+        } catch (Throwable t) {
+            plugin.getLogger().error("Error executing command /" + entries[i].getCommand(), t);
+            outcomes[i] = new CommandBatch.Outcome(entries[i], Text.of("Error executing command"), t);
+        }
+        completed++;
+    }
+
+    private void fail(int i, Text error) {
+        outcomes[i] = new CommandBatch.Outcome(entries[i], error);
+        completed++;
+    }
+
+    private void complete() {
+        future.complete(new ArrayList<>(Arrays.asList(outcomes)));
+    }
+}
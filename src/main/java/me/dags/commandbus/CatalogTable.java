@@ -0,0 +1,72 @@
+package me.dags.commandbus;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.spongepowered.api.CatalogType;
+
+/**
+ * An immutable snapshot of the registered values of a single CatalogType.
+ *
+ * @author dags <dags@dags.me>
+ */
+class CatalogTable {
+
+    private static final String DEFAULT_NAMESPACE = "minecraft:";
+
+    private final Map<String, CatalogType> types;
+    // lower-cased so that matching a fragment doesn't allocate per id
+    private final String[] byLength;
+    private final FuzzyIndex<String> fuzzy = new FuzzyIndex<>();
+
+    CatalogTable(Collection<? extends CatalogType> values) {
+        Map<String, CatalogType> types = new HashMap<>(values.size() * 2);
+        for (CatalogType type : values) {
+            types.put(type.getId().toLowerCase(), type);
+        }
+        this.types = types;
+        this.byLength = values.stream()
+                .map(type -> type.getId().toLowerCase())
+                .sorted(Comparator.comparingInt(String::length))
+                .toArray(String[]::new);
+        for (String id : byLength) {
+            fuzzy.add(id, id);
+            int colon = id.indexOf(':');
+            if (colon != -1) {
+                fuzzy.add(id.substring(colon + 1), id);
+            }
+        }
+    }
+
+    Optional<CatalogType> get(String id) {
+        String key = id.toLowerCase();
+        CatalogType type = types.get(key);
+        if (type == null && key.indexOf(':') == -1) {
+            type = types.get(DEFAULT_NAMESPACE + key);
+        }
+        return Optional.ofNullable(type);
+    }
+
+    /**
+     * The ids closest to the given (mistyped) id. Ids are matched both with and without their namespace.
+     */
+    List<String> closest(String id) {
+        return fuzzy.search(id, FuzzyIndex.tolerance(id), DidYouMean.LIMIT);
+    }
+
+    /**
+     * All ids containing the given (case-insensitive) fragment, shortest first.
+     */
+    Stream<String> contains(String fragment) {
+        if (fragment.isEmpty()) {
+            return Arrays.stream(byLength);
+        }
+        String key = fragment.toLowerCase();
+        return Arrays.stream(byLength).filter(id -> id.contains(key));
+    }
+}
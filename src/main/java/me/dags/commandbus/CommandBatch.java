@@ -0,0 +1,100 @@
+package me.dags.commandbus;
+
+import java.util.Optional;
+import javax.annotation.Nullable;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.text.Text;
+
+/**
+ * The entries, results & progress of a batch of commands run through {@link CommandBus#batch}.
+ *
+ * @author dags <dags@dags.me>
+ */
+public final class CommandBatch {
+
+    private CommandBatch() {
+
+    }
+
+    public static Entry entry(CommandSource source, String command) {
+        return new Entry(source, command);
+    }
+
+    public static final class Entry {
+
+        private final CommandSource source;
+        private final String command;
+
+        private Entry(CommandSource source, String command) {
+            this.source = source;
+            this.command = command.startsWith("/") ? command.substring(1) : command;
+        }
+
+        public CommandSource getSource() {
+            return source;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+    }
+
+    public static final class Outcome {
+
+        private final Entry entry;
+        private final Text error;
+        private final Throwable cause;
+
+        Outcome(Entry entry, @Nullable Text error) {
+            this(entry, error, null);
+        }
+
+        Outcome(Entry entry, @Nullable Text error, @Nullable Throwable cause) {
+            this.entry = entry;
+            this.error = error;
+            this.cause = cause;
+        }
+
+        public Entry getEntry() {
+            return entry;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public Optional<Text> getError() {
+            return Optional.ofNullable(error);
+        }
+
+        /**
+         * The exception thrown by the command, if it failed with an unexpected error rather than a usage error.
+         */
+        public Optional<Throwable> getCause() {
+            return Optional.ofNullable(cause);
+        }
+    }
+
+    public static final class Progress {
+
+        private final int completed;
+        private final int total;
+
+        Progress(int completed, int total) {
+            this.completed = completed;
+            this.total = total;
+        }
+
+        public int getCompleted() {
+            return completed;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public boolean isDone() {
+            return completed == total;
+        }
+    }
+}
@@ -1,21 +1,36 @@
 package me.dags.commandbus;
 
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.Writer;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import me.dags.command.CommandManager;
 import me.dags.command.annotation.Permission;
 import me.dags.command.command.CommandExecutor;
 import me.dags.command.command.CommandFactory;
 import me.dags.command.element.ElementFactory;
-import me.dags.command.utils.MarkdownWriter;
 import org.spongepowered.api.Sponge;
+import org.spongepowered.api.command.CommandSource;
 import org.spongepowered.api.event.cause.EventContextKeys;
 import org.spongepowered.api.plugin.PluginContainer;
 import org.spongepowered.api.service.permission.PermissionDescription;
 import org.spongepowered.api.service.permission.PermissionService;
+import org.spongepowered.api.service.permission.Subject;
 import org.spongepowered.api.text.Text;
 
 /**
@@ -24,8 +39,12 @@ import org.spongepowered.api.text.Text;
 public class CommandBus extends CommandManager<SpongeCommand> {
 
     private final PluginContainer plugin;
+    private final Settings settings;
+    private final Map<String, SpongeCommand> commands = new ConcurrentHashMap<>();
+    private final Set<String> submitted = ConcurrentHashMap.newKeySet();
+    private volatile boolean resubmitting = false;
 
-    private CommandBus(CommandManager.Builder<SpongeCommand> builder) {
+    private CommandBus(CommandManager.Builder<SpongeCommand> builder, Settings settings) {
         super(builder);
         Object owner = getOwner();
         if (owner instanceof PluginContainer) {
@@ -34,6 +53,8 @@ public class CommandBus extends CommandManager<SpongeCommand> {
             plugin = Sponge.getPluginManager().fromInstance(owner)
                     .orElseThrow(() -> new IllegalArgumentException("Provided object is not a plugin instance"));
         }
+        this.settings = settings.setOwner(plugin);
+        Lifecycle.init(plugin);
     }
 
     @Override
@@ -53,15 +74,118 @@ public class CommandBus extends CommandManager<SpongeCommand> {
 
     @Override
     protected void submit(Object owner, SpongeCommand command) {
-        Sponge.getCommandManager().register(owner, command, command.getAliases());
-        registerPermissions(command);
-        generateDocs(command);
+        Optional<CommandRegistry.Update> update = CommandRegistry.submit(this, plugin, owner, command, resubmitting ? submitted : null);
+        if (!update.isPresent()) {
+            warn("Command /%s was not registered, its aliases %s are in use by another CommandBus", command.getAlias(), command.getAliases());
+            return;
+        }
+        remove(update.get().getRemoved());
+        for (String alias : command.getAliases()) {
+            commands.put(alias.toLowerCase(), command);
+        }
+        submitted.add(command.getAlias());
+        registerPermissions(update.get().getAdded());
+        if (update.get().isChanged()) {
+            generateDocs(command);
+        }
+    }
+
+    /**
+     * Submits the registered commands as the complete set of this plugin's commands, for use when a plugin
+     * rebuilds its commands (ie on reload). Commands that are unchanged since they were last submitted are left
+     * in place, and any of this CommandBus' previously submitted commands that are not part of this submission are
+     * unregistered. Commands of the plugin's other CommandBuses are not affected.
+     */
+    public void resubmit() {
+        submitted.clear();
+        resubmitting = true;
+        try {
+            submit();
+        } finally {
+            resubmitting = false;
+        }
+        remove(CommandRegistry.retain(this, submitted));
+    }
+
+    private void remove(Collection<SpongeCommand> removed) {
+        for (SpongeCommand command : removed) {
+            for (String alias : command.getAliases()) {
+                commands.remove(alias.toLowerCase(), command);
+            }
+            DocWriter.remove(plugin, command.getAlias());
+        }
+    }
+
+    /**
+     * Registers the command classes listed in the index that the CommandBus annotation processor generates for
+     * this plugin (META-INF/commandbus/{plugin id}.index), rather than scanning a package for them.
+     * The plugin's own class is registered using the plugin instance.
+     */
+    public CommandBus registerIndexed() {
+        Object instance = plugin.getInstance().orElse(null);
+        ClassLoader loader = instance != null ? instance.getClass().getClassLoader() : CommandBus.class.getClassLoader();
+        String path = "META-INF/commandbus/" + plugin.getId() + ".index";
+        try (InputStream in = loader.getResourceAsStream(path)) {
+            if (in == null) {
+                warn("No command index found at %s, is the CommandBus annotation processor configured?", path);
+                return this;
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String name = line.trim();
+                if (name.isEmpty()) {
+                    continue;
+                }
+                try {
+                    Class<?> type = Class.forName(name, true, loader);
+                    if (instance != null && type == instance.getClass()) {
+                        register(instance);
+                    } else {
+                        register(type);
+                    }
+                } catch (ClassNotFoundException e) {
+                    warn("Indexed command class %s not found", name);
+                }
+            }
+        } catch (IOException e) {
+            warn("Unable to read command index %s: %s", path, e.getMessage());
+        }
+        return this;
     }
 
-    private void registerPermissions(SpongeCommand command) {
+    /**
+     * Runs a batch of this CommandBus' commands on the server thread, spread across as many ticks as needed to
+     * keep the time spent per tick within the given budget. Entries are run in order, and always on the server
+     * thread, even if this CommandBus executes commands asynchronously.
+     *
+     * @param entries the (source, command line) pairs to run
+     * @param budget the maximum time to spend running commands per tick
+     * @param unit the unit of the budget
+     * @param progress notified of the number of completed entries after each tick
+     * @return a future completed with the outcome of each entry, in order, or exceptionally if the progress
+     * consumer throws
+     */
+    public CompletableFuture<List<CommandBatch.Outcome>> batch(List<CommandBatch.Entry> entries, long budget, TimeUnit unit, Consumer<CommandBatch.Progress> progress) {
+        return new BatchRunner(entries, commands, unit.toNanos(budget), progress).start(plugin);
+    }
+
+    public CompletableFuture<List<CommandBatch.Outcome>> batch(Stream<CommandBatch.Entry> entries, long budget, TimeUnit unit, Consumer<CommandBatch.Progress> progress) {
+        return batch(entries.collect(Collectors.toList()), budget, unit, progress);
+    }
+
+    public CompletableFuture<List<CommandBatch.Outcome>> batch(List<CommandBatch.Entry> entries, long budget, TimeUnit unit) {
+        return batch(entries, budget, unit, p -> {});
+    }
+
+    private void registerPermissions(Collection<CommandExecutor> executors) {
+        if (executors.isEmpty()) {
+            return;
+        }
+
         PermissionService service = Sponge.getServiceManager().provideUnchecked(PermissionService.class);
 
-        for (CommandExecutor e : command.getExecutors()) {
+        for (CommandExecutor e : executors) {
             Permission permission = e.getPermission();
             if (permission.value().isEmpty()) {
                 continue;
@@ -79,21 +203,59 @@ public class CommandBus extends CommandManager<SpongeCommand> {
     }
 
     private void generateDocs(SpongeCommand command) {
-        Path commandBus = Sponge.getGame().getGameDirectory().resolve("config").resolve("commandbus");
-        Path file = commandBus.resolve(String.format("%s-%s.md", plugin.getId(), command.getAlias()));
+        DocWriter.submit(plugin, command.getAlias(), command.getExecutors(), settings.isCombinedDocs());
+    }
 
+    /**
+     * Discards the cached permission decisions held for the subject. Permission plugins (or bridges to them)
+     * may call this when a subject's permissions change so that the change applies to commands immediately.
+     */
+    public static void invalidatePermissions(Subject subject) {
+        PermissionCache.invalidate(subject);
+    }
+
+    /**
+     * Discards all cached permission decisions.
+     */
+    public static void invalidatePermissions() {
+        PermissionCache.invalidateAll();
+    }
+
+    /**
+     * Runs the task on the server thread, immediately if already on it, otherwise on the next tick.
+     */
+    public static void sync(Object plugin, Runnable task) {
+        if (Sponge.getServer().isMainThread()) {
+            task.run();
+        } else {
+            Sponge.getScheduler().createTaskBuilder().execute(task).submit(plugin);
+        }
+    }
+
+    /**
+     * Runs the task on the server thread and waits (for at most 10 seconds) for its result.
+     * Must not be called from the server thread while it is waiting on the calling thread.
+     */
+    static <T> T callSync(Object plugin, Callable<T> task) throws Exception {
+        if (Sponge.getServer().isMainThread()) {
+            return task.call();
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Sponge.getScheduler().createTaskBuilder().execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }).submit(plugin);
         try {
-            Files.createDirectories(commandBus);
-            try (Writer writer = Files.newBufferedWriter(file)) {
-                try (MarkdownWriter mdwriter = new MarkdownWriter(writer)) {
-                    mdwriter.writeHeaders();
-                    for (CommandExecutor e : command.getExecutors()) {
-                        mdwriter.writeCommand(e);
-                    }
-                }
+            return future.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            throw e;
         }
     }
 
@@ -102,9 +264,7 @@ public class CommandBus extends CommandManager<SpongeCommand> {
     }
 
     public static CommandBus.Builder builder() {
-        return new Builder()
-                .elements(elements().build())
-                .commands(SpongeCommand::new);
+        return new Builder().elements(elements().build());
     }
 
     public static CommandBus create() {
@@ -125,9 +285,117 @@ public class CommandBus extends CommandManager<SpongeCommand> {
 
     public static class Builder extends CommandManager.Builder<SpongeCommand> {
 
+        private final Settings settings = new Settings();
+        private boolean customCommands = false;
+        private boolean commandSettings = false;
+        private boolean statsCommands = false;
+
+        /**
+         * Compute tab-completions off the server thread, waiting at most the given time for a result.
+         * Slower completions are cached once finished so that a repeated request is answered from memory.
+         */
+        public Builder asyncSuggestions(long timeout, TimeUnit unit) {
+            commandSettings().setAsyncSuggestions(new AsyncSuggestions(timeout, unit));
+            return this;
+        }
+
+        /**
+         * Run command executors on a worker pool rather than the calling (server) thread.
+         * Executors should use {@link CommandBus#sync(Object, Runnable)} for any work that must happen on the
+         * server thread. CommandBus' own parsers for server state (players, worlds, selectors, coordinates) run on
+         * the server thread; any parsers the plugin registers itself must be thread-safe.
+         *
+         * @param threads the number of worker threads, ignored where virtual threads are available
+         * @param capacity the maximum number of commands that may be queued or running at once
+         * @param perSource the maximum number of commands a single source may have queued or running at once
+         */
+        public Builder asyncExecution(int threads, int capacity, int perSource) {
+            commandSettings().setAsyncExecution(new AsyncExecution(threads, capacity, perSource, null));
+            return this;
+        }
+
+        /**
+         * As {@link #asyncExecution(int, int, int)}, additionally calling back on the server thread with the source
+         * & command line of each command that completes successfully.
+         */
+        public Builder asyncExecution(int threads, int capacity, int perSource, BiConsumer<CommandSource, String> onComplete) {
+            commandSettings().setAsyncExecution(new AsyncExecution(threads, capacity, perSource, onComplete));
+            return this;
+        }
+
+        /**
+         * Limit how often a single player (or other identifiable source) may use or tab-complete any of this
+         * CommandBus' commands. Requests over the limit are rejected before any parsing takes place.
+         *
+         * @param perSecond the sustained number of requests allowed per second
+         * @param burst the number of requests that may be made at once
+         * @throws IllegalArgumentException if either value is not positive
+         */
+        public Builder rateLimit(double perSecond, int burst) {
+            commandSettings().setSourceRateLimiter(new RateLimiter(perSecond, burst));
+            return this;
+        }
+
+        /**
+         * Limit how often a single player (or other identifiable source) may use or tab-complete each of this
+         * CommandBus' commands. Requests over the limit are rejected before any parsing takes place.
+         *
+         * @param perSecond the sustained number of requests allowed per second
+         * @param burst the number of requests that may be made at once
+         * @throws IllegalArgumentException if either value is not positive
+         */
+        public Builder commandRateLimit(double perSecond, int burst) {
+            commandSettings().setCommandRateLimit(perSecond, burst);
+            return this;
+        }
+
+        /**
+         * Load offline User arguments off the server thread. A command naming a user that isn't online or recently
+         * loaded is run once the user has been loaded, or fails if that takes longer than the given time.
+         */
+        public Builder asyncUsers(long timeout, TimeUnit unit) {
+            commandSettings().setUserResolver(new UserResolver(timeout, unit));
+            return this;
+        }
+
+        /**
+         * Set the maximum number of tab-completions returned for an argument (default 100).
+         * The limit is passed down to {@link PrefixOptions} so that large option sets are never fully built.
+         */
+        public Builder suggestionLimit(int limit) {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Suggestion limit must be positive");
+            }
+            commandSettings().setSuggestionLimit(limit);
+            return this;
+        }
+
+        /**
+         * Register the '/commandbus stats' commands (permission 'commandbus.stats') as part of this CommandBus'
+         * commands. Only one plugin on the server may own them; later requests are ignored with a warning.
+         */
+        public Builder statsCommands() {
+            statsCommands = true;
+            return this;
+        }
+
+        /**
+         * Additionally write a single markdown file listing all of the plugin's commands.
+         */
+        public Builder combinedDocs(boolean combined) {
+            settings.setCombinedDocs(combined);
+            return this;
+        }
+
+        /**
+         * Use a custom factory to create this CommandBus' commands. The per-command options of this builder
+         * (async suggestions/execution/users, rate limits & the suggestion limit) are applied by the default
+         * factory only, so they may not be combined with a custom one.
+         */
         @Override
         public Builder commands(CommandFactory<SpongeCommand> command) {
             super.commands(command);
+            customCommands = true;
             return this;
         }
 
@@ -144,7 +412,27 @@ public class CommandBus extends CommandManager<SpongeCommand> {
         }
 
         public CommandBus build() {
-            return super.build(CommandBus::new);
+            if (customCommands && commandSettings) {
+                throw new IllegalStateException("Per-command options cannot be used with a custom CommandFactory");
+            }
+            if (!customCommands) {
+                super.commands((aliases, executors) -> new SpongeCommand(aliases, executors, settings));
+            }
+            CommandBus bus = super.build(builder -> new CommandBus(builder, settings));
+            if (statsCommands) {
+                if (StatsCommands.claim()) {
+                    bus.register(new StatsCommands());
+                } else {
+                    bus.warn("The /commandbus commands are already registered by another plugin");
+                }
+            }
+            return bus;
+        }
+
+        // the settings that only the default command factory applies
+        private Settings commandSettings() {
+            commandSettings = true;
+            return settings;
         }
     }
 }
@@ -0,0 +1,65 @@
+package me.dags.commandbus;
+
+import java.util.List;
+import java.util.Optional;
+import javax.annotation.Nullable;
+import org.spongepowered.api.command.CommandCallable;
+import org.spongepowered.api.command.CommandException;
+import org.spongepowered.api.command.CommandResult;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.text.Text;
+import org.spongepowered.api.world.Location;
+import org.spongepowered.api.world.World;
+
+/**
+ * The callable registered with Sponge for a SpongeCommand. A re-submitted command with the same aliases replaces
+ * the target rather than being unregistered & registered again.
+ *
+ * @author dags <dags@dags.me>
+ */
+class CommandDelegate implements CommandCallable {
+
+    private volatile SpongeCommand target;
+
+    CommandDelegate(SpongeCommand target) {
+        this.target = target;
+    }
+
+    SpongeCommand getTarget() {
+        return target;
+    }
+
+    void setTarget(SpongeCommand target) {
+        this.target = target;
+    }
+
+    @Override
+    public CommandResult process(CommandSource source, String arguments) throws CommandException {
+        return target.process(source, arguments);
+    }
+
+    @Override
+    public List<String> getSuggestions(CommandSource source, String arguments, @Nullable Location<World> targetPosition) throws CommandException {
+        return target.getSuggestions(source, arguments, targetPosition);
+    }
+
+    @Override
+    public boolean testPermission(CommandSource source) {
+        return target.testPermission(source);
+    }
+
+    @Override
+    public Optional<Text> getShortDescription(CommandSource source) {
+        return target.getShortDescription(source);
+    }
+
+    @Override
+    public Optional<Text> getHelp(CommandSource source) {
+        return target.getHelp(source);
+    }
+
+    @Override
+    public Text getUsage(CommandSource source) {
+        return target.getUsage(source);
+    }
+}
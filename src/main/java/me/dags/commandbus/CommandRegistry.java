@@ -0,0 +1,198 @@
+package me.dags.commandbus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import me.dags.command.annotation.Permission;
+import me.dags.command.command.CommandExecutor;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.command.CommandMapping;
+import org.spongepowered.api.plugin.PluginContainer;
+
+/**
+ * Tracks the commands each CommandBus has registered with Sponge, so that submitting a command again only does the
+ * work for what changed: the Sponge mapping is kept if the aliases are the same, and permission descriptions & docs
+ * are only produced for new or modified executors.
+ *
+ * Each of a plugin's aliases belongs to the first of its CommandBuses to submit it; other buses can't take it over.
+ *
+ * @author dags <dags@dags.me>
+ */
+class CommandRegistry {
+
+    // each bus' registrations, by primary alias
+    private static final Map<CommandBus, Map<String, Registered>> buses = new ConcurrentHashMap<>();
+    // the bus holding each alias, keyed by plugin id & alias
+    private static final Map<String, CommandBus> claims = new ConcurrentHashMap<>();
+
+    /**
+     * Registers (or updates the registration of) the command and returns what changed, or an empty optional if one
+     * of its aliases belongs to another CommandBus of the plugin.
+     *
+     * @param current the primary aliases submitted so far in a resubmission, or null. Registrations that share an
+     * alias with the command and are not among them are stale, and are unregistered before the command is registered
+     */
+    static synchronized Optional<Update> submit(CommandBus bus, PluginContainer plugin, Object owner, SpongeCommand command, @Nullable Collection<String> current) {
+        Set<String> aliases = new HashSet<>();
+        for (String alias : command.getAliases()) {
+            String key = key(plugin, alias);
+            CommandBus holder = claims.get(key);
+            if (holder != null && holder != bus) {
+                return Optional.empty();
+            }
+            aliases.add(alias.toLowerCase());
+        }
+
+        Map<String, Registered> registered = buses.computeIfAbsent(bus, k -> new ConcurrentHashMap<>());
+        List<SpongeCommand> removed = new ArrayList<>();
+        if (current != null) {
+            Iterator<Map.Entry<String, Registered>> iterator = registered.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Registered> entry = iterator.next();
+                if (!entry.getKey().equals(command.getAlias()) && !current.contains(entry.getKey()) && !Collections.disjoint(entry.getValue().aliases, aliases)) {
+                    entry.getValue().unregister(bus);
+                    removed.add(entry.getValue().delegate.getTarget());
+                    iterator.remove();
+                }
+            }
+        }
+
+        Set<String> signatures = new HashSet<>();
+        for (CommandExecutor e : command.getExecutors()) {
+            signatures.add(signature(e));
+        }
+
+        Registered previous = registered.get(command.getAlias());
+        if (previous != null && previous.aliases.equals(aliases)) {
+            previous.delegate.setTarget(command);
+        } else {
+            if (previous != null) {
+                previous.unregister(bus);
+            }
+            CommandDelegate delegate = new CommandDelegate(command);
+            Optional<CommandMapping> mapping = Sponge.getCommandManager().register(owner, delegate, command.getAliases());
+            previous = null;
+            registered.put(command.getAlias(), new Registered(plugin, aliases, signatures, delegate, mapping.orElse(null)));
+            for (String alias : aliases) {
+                claims.put(key(plugin, alias), bus);
+            }
+        }
+
+        List<CommandExecutor> added = new ArrayList<>();
+        for (CommandExecutor e : command.getExecutors()) {
+            if (previous == null || !previous.signatures.contains(signature(e))) {
+                added.add(e);
+            }
+        }
+
+        boolean changed = previous == null || !previous.signatures.equals(signatures);
+        if (previous != null) {
+            previous.signatures = signatures;
+        }
+        return Optional.of(new Update(added, removed, changed));
+    }
+
+    /**
+     * Unregisters the bus' commands whose (primary) aliases are not in the given set.
+     *
+     * @return the commands that were removed
+     */
+    static synchronized List<SpongeCommand> retain(CommandBus bus, Collection<String> aliases) {
+        Map<String, Registered> registered = buses.get(bus);
+        if (registered == null) {
+            return Collections.emptyList();
+        }
+        List<SpongeCommand> removed = new ArrayList<>();
+        Iterator<Map.Entry<String, Registered>> iterator = registered.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Registered> entry = iterator.next();
+            if (!aliases.contains(entry.getKey())) {
+                entry.getValue().unregister(bus);
+                removed.add(entry.getValue().delegate.getTarget());
+                iterator.remove();
+            }
+        }
+        return removed;
+    }
+
+    private static String key(PluginContainer plugin, String alias) {
+        return plugin.getId() + ':' + alias.toLowerCase();
+    }
+
+    private static String signature(CommandExecutor e) {
+        Permission permission = e.getPermission();
+        return e.getUsage().value()
+                + '\0' + permission.value()
+                + '\0' + permission.role().value()
+                + '\0' + permission.role().permit()
+                + '\0' + e.getDescription().value();
+    }
+
+    static class Update {
+
+        private final List<CommandExecutor> added;
+        private final List<SpongeCommand> removed;
+        private final boolean changed;
+
+        private Update(List<CommandExecutor> added, List<SpongeCommand> removed, boolean changed) {
+            this.added = added;
+            this.removed = removed;
+            this.changed = changed;
+        }
+
+        /**
+         * The executors that were not part of the previous registration.
+         */
+        List<CommandExecutor> getAdded() {
+            return added;
+        }
+
+        /**
+         * The stale commands that were unregistered to make way for this one.
+         */
+        List<SpongeCommand> getRemoved() {
+            return removed;
+        }
+
+        /**
+         * Returns true if the command's executors differ from the previous registration.
+         */
+        boolean isChanged() {
+            return changed;
+        }
+    }
+
+    private static class Registered {
+
+        private final PluginContainer plugin;
+        private final Set<String> aliases;
+        private final CommandDelegate delegate;
+        private final CommandMapping mapping;
+        private volatile Set<String> signatures;
+
+        private Registered(PluginContainer plugin, Set<String> aliases, Set<String> signatures, CommandDelegate delegate, CommandMapping mapping) {
+            this.plugin = plugin;
+            this.aliases = aliases;
+            this.signatures = signatures;
+            this.delegate = delegate;
+            this.mapping = mapping;
+        }
+
+        private void unregister(CommandBus bus) {
+            if (mapping != null) {
+                Sponge.getCommandManager().removeMapping(mapping);
+            }
+            for (String alias : aliases) {
+                claims.remove(key(plugin, alias), bus);
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package me.dags.commandbus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.entity.living.player.User;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.world.World;
+
+/**
+ * Holds the state of the command invocation currently running on this thread.
+ *
+ * @author dags <dags@dags.me>
+ */
+class Context {
+
+    private static final ThreadLocal<Context> current = new ThreadLocal<>();
+
+    private final CommandSource source;
+    private final Set<String> permissions;
+    private final String prefix;
+    private final int limit;
+    private final List<String> deferred;
+    private final PluginContainer worker;
+    private final Map<String, Optional<User>> users;
+    private final Snapshot snapshot;
+
+    private Context(CommandSource source, @Nullable Set<String> permissions, @Nullable String prefix, int limit, @Nullable List<String> deferred, @Nullable PluginContainer worker, Map<String, Optional<User>> users, @Nullable Snapshot snapshot) {
+        this.source = source;
+        this.permissions = permissions;
+        this.prefix = prefix;
+        this.limit = limit;
+        this.deferred = deferred;
+        this.worker = worker;
+        this.users = users;
+        this.snapshot = snapshot;
+    }
+
+    CommandSource getSource() {
+        return source;
+    }
+
+    /**
+     * Returns true if this context holds a snapshot of the source's permissions rather than querying the
+     * source directly.
+     */
+    boolean hasPermissionSnapshot(CommandSource source) {
+        return permissions != null && this.source == source;
+    }
+
+    boolean hasPermission(String permission) {
+        return permissions != null && permissions.contains(permission);
+    }
+
+    /**
+     * Returns true if this context is completing (rather than executing) a command.
+     */
+    boolean isCompletion() {
+        return prefix != null;
+    }
+
+    /**
+     * The partial argument being completed.
+     */
+    String getPrefix() {
+        return prefix == null ? "" : prefix;
+    }
+
+    /**
+     * The maximum number of suggestions wanted.
+     */
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns true if expensive arguments (offline users) should be deferred for loading off the server thread
+     * rather than resolved in place.
+     */
+    boolean isDeferring() {
+        return deferred != null;
+    }
+
+    void defer(String user) {
+        if (deferred != null) {
+            deferred.add(user);
+        }
+    }
+
+    /**
+     * The users that parsers deferred during this invocation.
+     */
+    List<String> getDeferred() {
+        return deferred == null ? Collections.emptyList() : deferred;
+    }
+
+    /**
+     * Returns the user loaded for this invocation under the given (lower-case) name, an empty optional if it was
+     * found not to exist, or null if it was not loaded.
+     */
+    @Nullable
+    Optional<User> getUser(String name) {
+        return users.get(name);
+    }
+
+    /**
+     * A copy of this context holding the users loaded for it, keyed by lower-case name.
+     */
+    Context withUsers(Map<String, Optional<User>> users) {
+        return new Context(source, permissions, prefix, limit, deferred, worker, users, snapshot);
+    }
+
+    /**
+     * A copy of this context that reads server state from the snapshot, for use off the server thread.
+     */
+    Context withSnapshot(Snapshot snapshot) {
+        return new Context(source, permissions, prefix, limit, deferred, worker, users, snapshot);
+    }
+
+    Context forCompletion(String prefix, int limit) {
+        return new Context(source, permissions, prefix, limit, null, worker, users, snapshot);
+    }
+
+    /**
+     * A copy of this context for running the command on a worker thread of the given plugin's CommandBus.
+     */
+    Context forWorker(PluginContainer owner) {
+        return new Context(source, permissions, prefix, limit, deferred, owner, users, snapshot);
+    }
+
+    Context deferring() {
+        return new Context(source, permissions, prefix, limit, new ArrayList<>(), worker, users, snapshot);
+    }
+
+    <T> T supply(Supplier<T> supplier) {
+        Context previous = current.get();
+        current.set(this);
+        try {
+            return supplier.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    <T> T call(Callable<T> callable) throws Exception {
+        Context previous = current.get();
+        current.set(this);
+        try {
+            return callable.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    private static void restore(@Nullable Context previous) {
+        if (previous == null) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+    }
+
+    /**
+     * Runs the task on the server thread, with this thread's context. If the current command is running on a
+     * worker thread the worker waits for the task to complete, otherwise the task is run in place.
+     * Parsers that read server state use this so that async commands never parse off the server thread.
+     */
+    static <T> T onServerThread(Callable<T> task) throws Exception {
+        Context context = current.get();
+        if (context == null || context.worker == null || Sponge.getServer().isMainThread()) {
+            return task.call();
+        }
+        return CommandBus.callSync(context.worker, () -> context.call(task));
+    }
+
+    /**
+     * The snapshot of server state held by the current context, or null if server state should be read directly.
+     */
+    @Nullable
+    static Snapshot snapshot() {
+        Context context = current.get();
+        return context == null ? null : context.snapshot;
+    }
+
+    static Collection<World> worlds() {
+        Snapshot snapshot = snapshot();
+        return snapshot == null ? Sponge.getServer().getWorlds() : snapshot.getWorlds();
+    }
+
+    static Optional<Player> player(UUID id) {
+        Snapshot snapshot = snapshot();
+        return snapshot == null ? Sponge.getServer().getPlayer(id) : snapshot.getPlayer(id);
+    }
+
+    @Nullable
+    static Context get() {
+        return current.get();
+    }
+
+    static Context of(CommandSource source) {
+        return new Context(source, null, null, Integer.MAX_VALUE, null, null, Collections.emptyMap(), null);
+    }
+
+    static Context of(CommandSource source, Set<String> permissions) {
+        return new Context(source, permissions, null, Integer.MAX_VALUE, null, null, Collections.emptyMap(), null);
+    }
+}
@@ -0,0 +1,178 @@
+package me.dags.commandbus;
+
+import com.flowpowered.math.TrigMath;
+import com.flowpowered.math.vector.Vector3d;
+import com.flowpowered.math.vector.Vector3i;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.entity.Entity;
+import org.spongepowered.api.entity.living.Living;
+import org.spongepowered.api.world.Locatable;
+
+/**
+ * Parses coordinate triples. Each component may be absolute ('12'), relative to the source's position ('~' or
+ * '~-3'), or all three may be local to the source's position & facing ('^left ^up ^forward').
+ *
+ * @author dags <dags@dags.me>
+ */
+final class Coordinates {
+
+    private static final char RELATIVE = '~';
+    private static final char LOCAL = '^';
+
+    private Coordinates() {
+
+    }
+
+    static Result<Vector3d> vector3d(String x, String y, String z) {
+        if (isLocal(x) || isLocal(y) || isLocal(z)) {
+            return local(x, y, z);
+        }
+
+        if (!isDouble(x) || !isDouble(y) || !isDouble(z)) {
+            return Result.failure("'%s %s %s' is not a valid position", x, y, z);
+        }
+
+        Vector3d origin = Vector3d.ZERO;
+        if (isRelative(x) || isRelative(y) || isRelative(z)) {
+            Result<Vector3d> position = position();
+            if (!position.isPresent()) {
+                return position;
+            }
+            origin = position.getValue();
+        }
+
+        return Result.of(new Vector3d(
+                component(x, origin.getX()),
+                component(y, origin.getY()),
+                component(z, origin.getZ())
+        ));
+    }
+
+    static Result<Vector3i> vector3i(String x, String y, String z) {
+        if (isLocal(x) || isLocal(y) || isLocal(z)) {
+            Result<Vector3d> local = local(x, y, z);
+            if (!local.isPresent()) {
+                return Result.failure("%s", local.getMessage());
+            }
+            return Result.of(local.getValue().toInt());
+        }
+
+        if (!isInt(x) || !isInt(y) || !isInt(z)) {
+            return Result.failure("'%s %s %s' is not a valid block position", x, y, z);
+        }
+
+        Vector3i origin = Vector3i.ZERO;
+        if (isRelative(x) || isRelative(y) || isRelative(z)) {
+            Result<Vector3d> position = position();
+            if (!position.isPresent()) {
+                return Result.failure("%s", position.getMessage());
+            }
+            origin = position.getValue().toInt();
+        }
+
+        return Result.of(new Vector3i(
+                component(x, origin.getX()),
+                component(y, origin.getY()),
+                component(z, origin.getZ())
+        ));
+    }
+
+    private static Result<Vector3d> local(String left, String up, String forward) {
+        if (!isLocal(left) || !isLocal(up) || !isLocal(forward)) {
+            return Result.failure("Cannot mix local (^) and world coordinates");
+        }
+
+        if (!isDouble(left) || !isDouble(up) || !isDouble(forward)) {
+            return Result.failure("'%s %s %s' is not a valid position", left, up, forward);
+        }
+
+        Context context = Context.get();
+        CommandSource source = context == null ? null : context.getSource();
+        if (!(source instanceof Entity)) {
+            return Result.failure("Local coordinates can only be used by an entity");
+        }
+
+        Entity entity = (Entity) source;
+        Snapshot snapshot = Context.snapshot();
+        Vector3d rotation;
+        Vector3d position;
+        if (snapshot != null) {
+            rotation = snapshot.getRotation().orElse(Vector3d.ZERO);
+            position = snapshot.getPosition().orElse(Vector3d.ZERO);
+        } else {
+            rotation = entity instanceof Living ? ((Living) entity).getHeadRotation() : entity.getRotation();
+            position = entity.getLocation().getPosition();
+        }
+        double pitch = rotation.getX();
+        double yaw = rotation.getY();
+
+        // the source's forward, up & left axes, following vanilla's local coordinates
+        double cosYaw = TrigMath.cos((yaw + 90) * TrigMath.DEG_TO_RAD);
+        double sinYaw = TrigMath.sin((yaw + 90) * TrigMath.DEG_TO_RAD);
+        double cosPitch = TrigMath.cos(-pitch * TrigMath.DEG_TO_RAD);
+        double sinPitch = TrigMath.sin(-pitch * TrigMath.DEG_TO_RAD);
+        double cosPitchUp = TrigMath.cos((-pitch + 90) * TrigMath.DEG_TO_RAD);
+        double sinPitchUp = TrigMath.sin((-pitch + 90) * TrigMath.DEG_TO_RAD);
+        Vector3d forwardAxis = new Vector3d(cosYaw * cosPitch, sinPitch, sinYaw * cosPitch);
+        Vector3d upAxis = new Vector3d(cosYaw * cosPitchUp, sinPitchUp, sinYaw * cosPitchUp);
+        Vector3d leftAxis = forwardAxis.cross(upAxis).mul(-1);
+
+        double l = offset(left);
+        double u = offset(up);
+        double f = offset(forward);
+        return Result.of(position
+                .add(forwardAxis.mul(f))
+                .add(upAxis.mul(u))
+                .add(leftAxis.mul(l)));
+    }
+
+    private static Result<Vector3d> position() {
+        Context context = Context.get();
+        CommandSource source = context == null ? null : context.getSource();
+        Snapshot snapshot = Context.snapshot();
+        if (snapshot != null && snapshot.getPosition().isPresent()) {
+            return Result.of(snapshot.getPosition().get());
+        }
+        if (snapshot == null && source instanceof Locatable) {
+            return Result.of(((Locatable) source).getLocation().getPosition());
+        }
+        return Result.failure("Relative coordinates can only be used by a source that has a position");
+    }
+
+    private static double component(String s, double origin) {
+        return isRelative(s) ? origin + offset(s) : Numbers.parseDouble(s, 0);
+    }
+
+    private static int component(String s, int origin) {
+        if (isRelative(s)) {
+            return s.length() == 1 ? origin : origin + Numbers.parseInt(s, 1);
+        }
+        return Numbers.parseInt(s, 0);
+    }
+
+    private static double offset(String s) {
+        return s.length() == 1 ? 0 : Numbers.parseDouble(s, 1);
+    }
+
+    private static boolean isDouble(String s) {
+        if (isRelative(s) || isLocal(s)) {
+            return s.length() == 1 || Numbers.isDouble(s, 1);
+        }
+        return Numbers.isDouble(s, 0);
+    }
+
+    private static boolean isInt(String s) {
+        if (isRelative(s)) {
+            return s.length() == 1 || Numbers.isInt(s, 1);
+        }
+        return Numbers.isInt(s, 0);
+    }
+
+    private static boolean isRelative(String s) {
+        return !s.isEmpty() && s.charAt(0) == RELATIVE;
+    }
+
+    private static boolean isLocal(String s) {
+        return !s.isEmpty() && s.charAt(0) == LOCAL;
+    }
+}
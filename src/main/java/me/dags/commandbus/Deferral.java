@@ -0,0 +1,14 @@
+package me.dags.commandbus;
+
+/**
+ * Thrown by a parser to abort the current dispatch until the arguments it deferred have been loaded. It is not a
+ * CommandException, so the library cannot mistake it for a parse failure and move on to another executor.
+ *
+ * @author dags <dags@dags.me>
+ */
+class Deferral extends RuntimeException {
+
+    Deferral(String argument) {
+        super("Deferred loading '" + argument + "'", null, false, false);
+    }
+}
@@ -0,0 +1,53 @@
+package me.dags.commandbus;
+
+import java.util.AbstractMap;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A failure message suffix listing the closest known values to a bad input. The lookup is deferred until the
+ * message is formatted, so failed parse attempts that are never shown to the user don't pay for it.
+ *
+ * @author dags <dags@dags.me>
+ */
+class DidYouMean {
+
+    static final int LIMIT = 3;
+
+    private final Supplier<List<String>> candidates;
+
+    private DidYouMean(Supplier<List<String>> candidates) {
+        this.candidates = candidates;
+    }
+
+    @Override
+    public String toString() {
+        List<String> values = candidates.get();
+        if (values.isEmpty()) {
+            return "";
+        }
+        return ", did you mean " + String.join(", ", values) + "?";
+    }
+
+    static DidYouMean of(Supplier<List<String>> candidates) {
+        return new DidYouMean(candidates);
+    }
+
+    /**
+     * Finds the closest values by scanning them; for small domains (online players, worlds) only.
+     */
+    static List<String> scan(Stream<String> values, String query) {
+        int tolerance = FuzzyIndex.tolerance(query);
+        return values.map(value -> new AbstractMap.SimpleImmutableEntry<>(value, FuzzyIndex.distance(value, query)))
+                .filter(e -> e.getValue() <= tolerance)
+                .sorted(Comparator.<Map.Entry<String, Integer>>comparingInt(Map.Entry::getValue)
+                        .thenComparingInt(e -> e.getKey().length()))
+                .limit(LIMIT)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+}
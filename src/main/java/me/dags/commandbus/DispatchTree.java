@@ -0,0 +1,137 @@
+package me.dags.commandbus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import me.dags.command.command.CommandExecutor;
+
+/**
+ * A tree of the literal (sub-command) tokens of a command's executors, compiled from their usage strings.
+ *
+ * Each node branches on the literal tokens that may follow it, and records whether any executor takes
+ * arguments at that point. Walking the tree over the input is linear in the number of input tokens and decides,
+ * without trying the executors one by one, whether an input could match any of them at all.
+ *
+ * @author dags <dags@dags.me>
+ */
+class DispatchTree {
+
+    private final Node root = new Node();
+
+    DispatchTree(Collection<CommandExecutor> executors) {
+        for (CommandExecutor e : executors) {
+            String[] tokens = e.getUsage().value().trim().split(" +");
+            String permission = e.getPermission().value();
+            Node node = root;
+            node.permissions.add(permission);
+            // the first token is the command alias
+            for (int i = 1; i < tokens.length; i++) {
+                UsageToken.Kind kind = UsageToken.of(tokens[i]);
+                if (kind == UsageToken.Kind.FLAG) {
+                    continue;
+                }
+                if (kind == UsageToken.Kind.ARGUMENT) {
+                    node.arguments = true;
+                    break;
+                }
+                node = node.literals.computeIfAbsent(tokens[i].toLowerCase(), k -> new Node());
+                node.permissions.add(permission);
+            }
+        }
+    }
+
+    /**
+     * Returns false only if the input names a sub-command that no executor has. Inputs the tree can't judge
+     * (flags, or tokens beyond the end of every usage) are left to the executors, and their error messages.
+     */
+    boolean accepts(String arguments) {
+        Node node = root;
+        for (String token : tokenize(arguments)) {
+            if (node.arguments || node.literals.isEmpty()) {
+                return true;
+            }
+            if (UsageToken.of(token) == UsageToken.Kind.FLAG) {
+                continue;
+            }
+            node = node.literals.get(token.toLowerCase());
+            if (node == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the literal tokens that complete the last (partial) token of the input if they can be resolved
+     * from the tree alone, or null if the input reaches an argument (or goes beyond the end of every usage, eg
+     * undeclared flags) and must be completed by the executors.
+     */
+    List<String> suggest(String arguments, Predicate<String> permission) {
+        List<String> tokens = tokenize(arguments);
+        String partial = arguments.isEmpty() || arguments.endsWith(" ") ? "" : tokens.remove(tokens.size() - 1);
+
+        if (UsageToken.of(partial) == UsageToken.Kind.FLAG && !partial.isEmpty()) {
+            return null;
+        }
+
+        Node node = root;
+        for (String token : tokens) {
+            if (node.arguments || node.literals.isEmpty()) {
+                return null;
+            }
+            if (UsageToken.of(token) == UsageToken.Kind.FLAG) {
+                continue;
+            }
+            node = node.literals.get(token.toLowerCase());
+            if (node == null) {
+                return Collections.emptyList();
+            }
+        }
+
+        if (node.arguments || node.literals.isEmpty()) {
+            return null;
+        }
+
+        String prefix = partial.toLowerCase();
+        List<String> suggestions = new ArrayList<>();
+        for (Map.Entry<String, Node> child : node.literals.entrySet()) {
+            if (child.getKey().startsWith(prefix) && child.getValue().isVisible(permission)) {
+                suggestions.add(child.getKey());
+            }
+        }
+        return suggestions;
+    }
+
+    private static List<String> tokenize(String arguments) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : arguments.trim().split(" +")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static class Node {
+
+        // sorted so that literal suggestions come out in order
+        private final Map<String, Node> literals = new TreeMap<>();
+        private final Set<String> permissions = new HashSet<>();
+        private boolean arguments = false;
+
+        private boolean isVisible(Predicate<String> permission) {
+            for (String node : permissions) {
+                if (permission.test(node)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package me.dags.commandbus;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import me.dags.command.command.CommandExecutor;
+import me.dags.command.utils.MarkdownWriter;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.plugin.PluginContainer;
+
+/**
+ * Collects the markdown docs of submitted commands and writes them in a single background pass.
+ *
+ * The pass is scheduled on the first tick after commands are submitted, so that it runs once all plugins
+ * have registered their commands. Docs are rendered in memory and a file is only written if its content
+ * differs from what is already on disk.
+ *
+ * @author dags <dags@dags.me>
+ */
+class DocWriter {
+
+    private static final Map<String, Docs> plugins = new ConcurrentHashMap<>();
+    private static final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    static void submit(PluginContainer plugin, String alias, Collection<CommandExecutor> executors, boolean combined) {
+        Docs docs = plugins.computeIfAbsent(plugin.getId(), id -> new Docs(plugin));
+        docs.add(alias, executors, combined);
+        schedule(plugin);
+    }
+
+    /**
+     * Removes the docs of an unregistered command.
+     */
+    static void remove(PluginContainer plugin, String alias) {
+        Docs docs = plugins.get(plugin.getId());
+        if (docs != null) {
+            docs.remove(alias);
+            schedule(plugin);
+        }
+    }
+
+    private static void schedule(PluginContainer plugin) {
+        if (scheduled.compareAndSet(false, true)) {
+            Sponge.getScheduler().createTaskBuilder()
+                    .name("commandbus-docs")
+                    .execute(() -> Sponge.getScheduler().createTaskBuilder()
+                            .async()
+                            .name("commandbus-docs")
+                            .execute(DocWriter::flush)
+                            .submit(plugin))
+                    .submit(plugin);
+        }
+    }
+
+    private static void flush() {
+        scheduled.set(false);
+        Path dir = Sponge.getGame().getGameDirectory().resolve("config").resolve("commandbus");
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        for (Docs docs : plugins.values()) {
+            docs.write(dir);
+        }
+    }
+
+    private static String render(Collection<Collection<CommandExecutor>> commands) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (MarkdownWriter mdwriter = new MarkdownWriter(writer)) {
+            mdwriter.writeHeaders();
+            for (Collection<CommandExecutor> executors : commands) {
+                for (CommandExecutor e : executors) {
+                    mdwriter.writeCommand(e);
+                }
+            }
+        }
+        return writer.toString();
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        if (Files.exists(file) && Files.size(file) == bytes.length) {
+            if (Arrays.equals(Files.readAllBytes(file), bytes)) {
+                return;
+            }
+        }
+        Files.write(file, bytes);
+    }
+
+    private static class Docs {
+
+        private final PluginContainer plugin;
+        private final Map<String, Collection<CommandExecutor>> commands = new TreeMap<>();
+        private final Set<String> dirty = new HashSet<>();
+        private final Set<String> removed = new HashSet<>();
+        private boolean combined = false;
+        private boolean combinedDirty = false;
+
+        private Docs(PluginContainer plugin) {
+            this.plugin = plugin;
+        }
+
+        private synchronized void add(String alias, Collection<CommandExecutor> executors, boolean combined) {
+            this.commands.put(alias, executors);
+            this.dirty.add(alias);
+            this.removed.remove(alias);
+            this.combined |= combined;
+        }
+
+        private synchronized void remove(String alias) {
+            this.commands.remove(alias);
+            this.dirty.remove(alias);
+            this.removed.add(alias);
+        }
+
+        // entries are only cleared once written, so that a failed write is retried on the next flush
+        private synchronized void write(Path dir) {
+            if (dirty.isEmpty() && removed.isEmpty() && !combinedDirty) {
+                return;
+            }
+            combinedDirty = true;
+
+            Iterator<String> iterator = removed.iterator();
+            while (iterator.hasNext()) {
+                try {
+                    Files.deleteIfExists(dir.resolve(String.format("%s-%s.md", plugin.getId(), iterator.next())));
+                    iterator.remove();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+
+            iterator = dirty.iterator();
+            while (iterator.hasNext()) {
+                String alias = iterator.next();
+                try {
+                    List<Collection<CommandExecutor>> command = new ArrayList<>();
+                    command.add(commands.get(alias));
+                    DocWriter.write(dir.resolve(String.format("%s-%s.md", plugin.getId(), alias)), render(command));
+                    iterator.remove();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+
+            if (!combined) {
+                combinedDirty = false;
+                return;
+            }
+            try {
+                DocWriter.write(dir.resolve(String.format("%s.md", plugin.getId())), render(commands.values()));
+                combinedDirty = false;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
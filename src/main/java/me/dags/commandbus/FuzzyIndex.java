@@ -0,0 +1,195 @@
+package me.dags.commandbus;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A bigram index of case-insensitive keys, used to find the keys within a small edit distance of a query.
+ * A key within k edits of a query shares at least (query length + 1 - 2k) of its (boundary-padded) bigrams, so
+ * only keys that reach that count in the query's posting lists are compared against it, rather than every key.
+ *
+ * @author dags <dags@dags.me>
+ */
+class FuzzyIndex<T> {
+
+    private final Map<Integer, Postings> postings = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private final List<T> values = new ArrayList<>();
+    // slots of removed keys, reused by later additions
+    private final Deque<Integer> free = new ArrayDeque<>();
+    private int[] counts = new int[0];
+
+    synchronized void add(String key, T value) {
+        String k = key.toLowerCase();
+        int index;
+        if (free.isEmpty()) {
+            index = keys.size();
+            keys.add(k);
+            values.add(value);
+        } else {
+            index = free.pop();
+            keys.set(index, k);
+            values.set(index, value);
+        }
+        for (int i = 0; i <= k.length(); i++) {
+            postings.computeIfAbsent(bigram(k, i), g -> new Postings()).add(index);
+        }
+    }
+
+    /**
+     * Removes one entry of the key with the given value, if present.
+     */
+    synchronized void remove(String key, T value) {
+        String k = key.toLowerCase();
+        Postings first = postings.get(bigram(k, 0));
+        if (first == null) {
+            return;
+        }
+        for (int j = 0; j < first.size; j++) {
+            int index = first.keys[j];
+            if (k.equals(keys.get(index)) && Objects.equals(value, values.get(index))) {
+                for (int i = 0; i <= k.length(); i++) {
+                    int gram = bigram(k, i);
+                    Postings list = postings.get(gram);
+                    if (list != null && list.remove(index) && list.size == 0) {
+                        postings.remove(gram);
+                    }
+                }
+                keys.set(index, null);
+                values.set(index, null);
+                free.push(index);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns up to 'limit' distinct values whose keys are within 'maxDistance' edits of the query,
+     * closest (then shortest) first.
+     */
+    synchronized List<T> search(String query, int maxDistance, int limit) {
+        String q = query.toLowerCase();
+        int threshold = q.length() + 1 - 2 * maxDistance;
+        if (threshold <= 0 || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        if (counts.length < keys.size()) {
+            counts = new int[Math.max(keys.size(), counts.length * 2)];
+        }
+
+        List<Integer> candidates = new ArrayList<>();
+        List<Postings> probed = new ArrayList<>();
+        for (int i = 0; i <= q.length(); i++) {
+            Postings list = postings.get(bigram(q, i));
+            if (list == null) {
+                continue;
+            }
+            probed.add(list);
+            for (int j = 0; j < list.size; j++) {
+                int key = list.keys[j];
+                if (++counts[key] == threshold) {
+                    candidates.add(key);
+                }
+            }
+        }
+
+        // reset the shared counters for the next search
+        for (Postings list : probed) {
+            for (int j = 0; j < list.size; j++) {
+                counts[list.keys[j]] = 0;
+            }
+        }
+
+        List<long[]> matches = new ArrayList<>();
+        for (int key : candidates) {
+            String candidate = keys.get(key);
+            if (Math.abs(candidate.length() - q.length()) > maxDistance) {
+                continue;
+            }
+            int distance = distance(candidate, q);
+            if (distance <= maxDistance) {
+                matches.add(new long[]{distance, candidate.length(), key});
+            }
+        }
+
+        matches.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        Set<T> results = new LinkedHashSet<>();
+        for (long[] match : matches) {
+            results.add(values.get((int) match[2]));
+            if (results.size() >= limit) {
+                break;
+            }
+        }
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * The number of edits a query may be from a key to be considered a likely typo of it.
+     */
+    static int tolerance(String query) {
+        return query.length() < 5 ? 1 : query.length() < 9 ? 2 : 3;
+    }
+
+    /**
+     * Case-insensitive Levenshtein distance.
+     */
+    static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = Character.toLowerCase(a.charAt(i - 1));
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == Character.toLowerCase(b.charAt(j - 1)) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    // the i'th bigram of the key padded with a boundary marker at each end
+    private static int bigram(String key, int i) {
+        char first = i == 0 ? '\0' : key.charAt(i - 1);
+        char second = i == key.length() ? '\0' : key.charAt(i);
+        return first << 16 | second;
+    }
+
+    private static class Postings {
+
+        private int[] keys = new int[4];
+        private int size = 0;
+
+        private void add(int key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            keys[size++] = key;
+        }
+
+        private boolean remove(int key) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i] == key) {
+                    // order doesn't matter, so fill the gap with the last key
+                    keys[i] = keys[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
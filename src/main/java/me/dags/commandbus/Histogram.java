@@ -0,0 +1,69 @@
+package me.dags.commandbus;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size latency histogram with power-of-two nanosecond buckets. Recording a value does not allocate.
+ *
+ * @author dags <dags@dags.me>
+ */
+class Histogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        count.increment();
+        total.add(nanos);
+        buckets[bucket(nanos)].increment();
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    double getMeanMillis() {
+        long count = getCount();
+        return count == 0 ? 0 : total.sum() / (count * 1_000_000D);
+    }
+
+    /**
+     * Returns the upper bound (in milliseconds) of the bucket containing the given percentile.
+     */
+    double getPercentileMillis(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+
+        long target = (long) Math.ceil(count * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target && seen > 0) {
+                return upperBound(i) / 1_000_000D;
+            }
+        }
+
+        return 0;
+    }
+
+    private static int bucket(long nanos) {
+        return nanos <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(nanos - 1);
+    }
+
+    private static double upperBound(int bucket) {
+        return Math.pow(2, bucket);
+    }
+}
@@ -0,0 +1,26 @@
+package me.dags.commandbus;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.spongepowered.api.plugin.PluginContainer;
+
+/**
+ * Registers the shared listeners that keep CommandBus' indexes up to date. Only the first CommandBus created
+ * performs the registration.
+ *
+ * @author dags <dags@dags.me>
+ */
+class Lifecycle {
+
+    private static final AtomicBoolean initialized = new AtomicBoolean(false);
+
+    static void init(PluginContainer plugin) {
+        if (initialized.compareAndSet(false, true)) {
+            PlayerIndex.register(plugin);
+            PlayerGrid.register(plugin);
+            UserIndex.register(plugin);
+            SpongeElementFactory.register(plugin);
+            PermissionCache.register(plugin);
+            Metrics.register(plugin);
+        }
+    }
+}
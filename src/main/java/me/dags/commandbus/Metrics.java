@@ -0,0 +1,157 @@
+package me.dags.commandbus;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.plugin.PluginContainer;
+
+/**
+ * Records per-command call counts, error counts & latencies, grouped by the plugin that owns the command.
+ *
+ * @author dags <dags@dags.me>
+ */
+class Metrics {
+
+    private static final String UNKNOWN = "unknown";
+    private static final long DUMP_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
+    private static final Map<String, Map<String, Stats>> plugins = new ConcurrentHashMap<>();
+
+    static void register(PluginContainer plugin) {
+        Sponge.getScheduler().createTaskBuilder()
+                .async()
+                .name("commandbus-stats")
+                .delay(DUMP_INTERVAL, TimeUnit.MILLISECONDS)
+                .interval(DUMP_INTERVAL, TimeUnit.MILLISECONDS)
+                .execute(Metrics::dump)
+                .submit(plugin);
+    }
+
+    static Stats of(@Nullable PluginContainer plugin, String alias) {
+        String id = plugin == null ? UNKNOWN : plugin.getId();
+        return plugins.computeIfAbsent(id, k -> new ConcurrentHashMap<>()).computeIfAbsent(alias, k -> new Stats());
+    }
+
+    /**
+     * Returns a sorted snapshot of the command stats of each plugin.
+     */
+    static Map<String, Map<String, Stats>> getStats() {
+        Map<String, Map<String, Stats>> snapshot = new TreeMap<>();
+        plugins.forEach((plugin, commands) -> snapshot.put(plugin, new TreeMap<>(commands)));
+        return snapshot;
+    }
+
+    static Map<String, Stats> getStats(String plugin) {
+        Map<String, Stats> commands = plugins.get(plugin);
+        return commands == null ? Collections.emptyMap() : new TreeMap<>(commands);
+    }
+
+    private static void dump() {
+        Path dir = Sponge.getGame().getGameDirectory().resolve("config").resolve("commandbus");
+        Path file = dir.resolve("stats.json");
+        Path temp = dir.resolve("stats.json.tmp");
+
+        try {
+            Files.createDirectories(dir);
+            Files.write(temp, toJson().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String toJson() {
+        StringWriter json = new StringWriter();
+        json.append("{\n  \"timestamp\": ").append(Long.toString(System.currentTimeMillis()));
+        json.append(",\n  \"plugins\": {");
+        boolean firstPlugin = true;
+        for (Map.Entry<String, Map<String, Stats>> plugin : getStats().entrySet()) {
+            json.append(firstPlugin ? "\n" : ",\n").append("    ").append(quote(plugin.getKey())).append(": {");
+            boolean firstCommand = true;
+            for (Map.Entry<String, Stats> command : plugin.getValue().entrySet()) {
+                Stats stats = command.getValue();
+                json.append(firstCommand ? "\n" : ",\n").append("      ").append(quote(command.getKey())).append(": {");
+                json.append("\"calls\": ").append(Long.toString(stats.getCalls()));
+                json.append(", \"errors\": ").append(Long.toString(stats.getErrors()));
+                json.append(", \"execute\": ").append(toJson(stats.getExecute()));
+                json.append(", \"suggest\": ").append(toJson(stats.getSuggest()));
+                json.append("}");
+                firstCommand = false;
+            }
+            json.append(firstCommand ? "}" : "\n    }");
+            firstPlugin = false;
+        }
+        json.append(firstPlugin ? "}\n}\n" : "\n  }\n}\n");
+        return json.toString();
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static String toJson(Histogram histogram) {
+        return String.format(Locale.ROOT, "{\"count\": %d, \"mean_ms\": %.3f, \"p50_ms\": %.3f, \"p99_ms\": %.3f}",
+                histogram.getCount(),
+                histogram.getMeanMillis(),
+                histogram.getPercentileMillis(0.5),
+                histogram.getPercentileMillis(0.99)
+        );
+    }
+
+    static class Stats {
+
+        private final LongAdder errors = new LongAdder();
+        private final Histogram execute = new Histogram();
+        private final Histogram suggest = new Histogram();
+
+        void recordExecute(long nanos, boolean success) {
+            execute.record(nanos);
+            if (!success) {
+                errors.increment();
+            }
+        }
+
+        void recordSuggest(long nanos) {
+            suggest.record(nanos);
+        }
+
+        long getCalls() {
+            return execute.getCount();
+        }
+
+        long getErrors() {
+            return errors.sum();
+        }
+
+        Histogram getExecute() {
+            return execute;
+        }
+
+        Histogram getSuggest() {
+            return suggest;
+        }
+    }
+}
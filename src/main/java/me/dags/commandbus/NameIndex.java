@@ -0,0 +1,94 @@
+package me.dags.commandbus;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * A case-insensitive, prefix-searchable index of names to unique ids.
+ *
+ * @author dags <dags@dags.me>
+ */
+class NameIndex {
+
+    private final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+
+    void put(String name, UUID id) {
+        entries.put(key(name), new Entry(name, id));
+    }
+
+    void remove(String name, UUID id) {
+        String key = key(name);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.id.equals(id)) {
+            entries.remove(key, entry);
+        }
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    Optional<Entry> get(String name) {
+        return Optional.ofNullable(entries.get(key(name)));
+    }
+
+    /**
+     * Returns the exact (case-insensitive) match for the prefix if present, otherwise the first name that
+     * starts with it.
+     */
+    Optional<Entry> first(String prefix) {
+        String key = key(prefix);
+        Map.Entry<String, Entry> ceiling = entries.ceilingEntry(key);
+        if (ceiling != null && ceiling.getKey().startsWith(key)) {
+            return Optional.of(ceiling.getValue());
+        }
+        return Optional.empty();
+    }
+
+    Stream<Entry> prefix(String prefix) {
+        return range(prefix).values().stream();
+    }
+
+    Stream<Entry> all() {
+        return entries.values().stream();
+    }
+
+    private ConcurrentNavigableMap<String, Entry> range(String prefix) {
+        String key = key(prefix);
+        if (key.isEmpty()) {
+            return entries;
+        }
+        return entries.subMap(key, true, key + Character.MAX_VALUE, false);
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase();
+    }
+
+    static class Entry {
+
+        private final String name;
+        private final UUID id;
+
+        private Entry(String name, UUID id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        UUID getId() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package me.dags.commandbus;
+
+/**
+ * Validates & parses numbers directly from the characters of a token, without throwing on invalid input.
+ *
+ * Callers check the token with the matching 'is' method before parsing it.
+ *
+ * @author dags <dags@dags.me>
+ */
+final class Numbers {
+
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private Numbers() {
+
+    }
+
+    static boolean isInt(CharSequence s, int start) {
+        return isInteger(s, start, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    static boolean isLong(CharSequence s, int start) {
+        return isInteger(s, start, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    static int parseInt(CharSequence s, int start) {
+        return (int) parseLong(s, start);
+    }
+
+    static long parseLong(CharSequence s, int start) {
+        int i = start;
+        boolean negative = false;
+        char c = s.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+        // accumulate negatively so that MIN_VALUE does not overflow
+        long value = 0;
+        for (; i < s.length(); i++) {
+            value = value * 10 - (s.charAt(i) - '0');
+        }
+        return negative ? value : -value;
+    }
+
+    static boolean isDouble(CharSequence s, int start) {
+        int i = start;
+        int length = s.length();
+        if (i < length && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            i++;
+        }
+
+        int digits = 0;
+        for (; i < length && isDigit(s.charAt(i)); i++) {
+            digits++;
+        }
+
+        if (i < length && s.charAt(i) == '.') {
+            for (i++; i < length && isDigit(s.charAt(i)); i++) {
+                digits++;
+            }
+        }
+
+        if (digits == 0) {
+            return false;
+        }
+
+        if (i < length && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                i++;
+            }
+            int exponent = 0;
+            for (; i < length && isDigit(s.charAt(i)); i++) {
+                exponent++;
+            }
+            if (exponent == 0) {
+                return false;
+            }
+        }
+
+        return i == length;
+    }
+
+    static double parseDouble(CharSequence s, int start) {
+        int i = start;
+        int length = s.length();
+        boolean negative = false;
+        if (s.charAt(i) == '-' || s.charAt(i) == '+') {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (; i < length; i++) {
+            char c = s.charAt(i);
+            if (c == '.') {
+                fraction = true;
+                continue;
+            }
+            if (!isDigit(c)) {
+                break;
+            }
+            mantissa = mantissa * 10 + (c - '0');
+            digits++;
+            if (fraction) {
+                scale++;
+            }
+        }
+
+        // both operands are exact so the division is correctly rounded
+        if (i == length && digits <= MAX_EXACT_DIGITS) {
+            double value = mantissa / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+
+        // exponents & long mantissas take the general (allocating) route
+        return Double.parseDouble(s.subSequence(start, length).toString());
+    }
+
+    private static boolean isInteger(CharSequence s, int start, long min, long max) {
+        int i = start;
+        int length = s.length();
+        boolean negative = false;
+        if (i < length && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+
+        if (i == length) {
+            return false;
+        }
+
+        long limit = negative ? min : -max;
+        long multiplyLimit = limit / 10;
+        long value = 0;
+        for (; i < length; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) {
+                return false;
+            }
+            int digit = c - '0';
+            if (value < multiplyLimit) {
+                return false;
+            }
+            value *= 10;
+            if (value < limit + digit) {
+                return false;
+            }
+            value -= digit;
+        }
+
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
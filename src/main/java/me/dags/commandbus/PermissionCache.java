@@ -0,0 +1,159 @@
+package me.dags.commandbus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.event.Order;
+import org.spongepowered.api.event.network.ClientConnectionEvent;
+import org.spongepowered.api.event.permission.SubjectDataUpdateEvent;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.service.permission.PermissionService;
+import org.spongepowered.api.service.permission.Subject;
+
+/**
+ * Caches permission decisions per (subject, active contexts, permission node).
+ *
+ * A subject's decisions are dropped when its permission data changes (SubjectDataUpdateEvent), when it disconnects,
+ * or when invalidated through {@link CommandBus#invalidatePermissions(Subject)}. A change to a group (or any other
+ * non-user subject) may affect any user, so drops all decisions. Decisions also expire after a while, for permission
+ * services that don't fire the event. The number of subjects and nodes held is bounded. Lookups never lock; when a
+ * bound is passed a single thread sweeps out expired entries, then the least recently used subjects if needed.
+ *
+ * @author dags <dags@dags.me>
+ */
+class PermissionCache {
+
+    private static final int MAX_SUBJECTS = 2048;
+    private static final int MAX_NODES = 256;
+    private static final long EXPIRY = TimeUnit.SECONDS.toNanos(60);
+
+    private static final Map<String, Decisions> cache = new ConcurrentHashMap<>();
+    private static final AtomicBoolean sweeping = new AtomicBoolean(false);
+
+    static void register(PluginContainer plugin) {
+        Sponge.getEventManager().registerListener(plugin, ClientConnectionEvent.Disconnect.class, Order.POST, e -> {
+            invalidate(e.getTargetEntity());
+        });
+        Sponge.getEventManager().registerListener(plugin, SubjectDataUpdateEvent.class, Order.POST, e -> {
+            Subject subject = e.getUpdatedData().getSubject();
+            if (subject.getContainingCollection().getIdentifier().equals(PermissionService.SUBJECTS_USER)) {
+                invalidate(subject);
+            } else {
+                invalidateAll();
+            }
+        });
+    }
+
+    static boolean hasPermission(Subject subject, String permission) {
+        long now = System.nanoTime();
+        String id = subject.getIdentifier();
+        Decisions decisions = cache.get(id);
+        if (decisions == null) {
+            decisions = cache.computeIfAbsent(id, k -> new Decisions());
+            if (cache.size() > MAX_SUBJECTS) {
+                sweep(now);
+            }
+        }
+        decisions.accessed = now;
+
+        Set<org.spongepowered.api.service.context.Context> contexts = subject.getActiveContexts();
+        Node node = new Node(permission, contexts);
+        Decision decision = decisions.nodes.get(node);
+        if (decision == null || now - decision.timestamp > EXPIRY) {
+            decision = new Decision(subject.hasPermission(contexts, permission), now);
+            if (decisions.nodes.put(node, decision) == null && decisions.nodes.size() > MAX_NODES) {
+                decisions.trim(now);
+            }
+        }
+
+        return decision.value;
+    }
+
+    static void invalidate(Subject subject) {
+        cache.remove(subject.getIdentifier());
+    }
+
+    static void invalidateAll() {
+        cache.clear();
+    }
+
+    private static void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            cache.values().removeIf(decisions -> now - decisions.accessed > EXPIRY);
+            if (cache.size() > MAX_SUBJECTS) {
+                // evict down to three quarters of the bound so that sweeps stay rare
+                List<Map.Entry<String, Decisions>> entries = new ArrayList<>(cache.entrySet());
+                entries.sort(Comparator.comparingLong(e -> e.getValue().accessed));
+                int excess = entries.size() - MAX_SUBJECTS * 3 / 4;
+                for (int i = 0; i < excess; i++) {
+                    cache.remove(entries.get(i).getKey(), entries.get(i).getValue());
+                }
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private static class Decisions {
+
+        private final Map<Node, Decision> nodes = new ConcurrentHashMap<>();
+        private volatile long accessed;
+
+        private void trim(long now) {
+            nodes.values().removeIf(decision -> now - decision.timestamp > EXPIRY);
+            if (nodes.size() > MAX_NODES) {
+                nodes.clear();
+            }
+        }
+    }
+
+    private static class Node {
+
+        private final String permission;
+        private final Set<?> contexts;
+        private final int hash;
+
+        private Node(String permission, Set<?> contexts) {
+            this.permission = permission;
+            this.contexts = contexts;
+            this.hash = 31 * permission.hashCode() + contexts.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Node node = (Node) o;
+            return permission.equals(node.permission) && contexts.equals(node.contexts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class Decision {
+
+        private final boolean value;
+        private final long timestamp;
+
+        private Decision(boolean value, long timestamp) {
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+    }
+}
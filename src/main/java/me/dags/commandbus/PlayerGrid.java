@@ -0,0 +1,262 @@
+package me.dags.commandbus;
+
+import com.flowpowered.math.vector.Vector3d;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.entity.Transform;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.event.Order;
+import org.spongepowered.api.event.entity.MoveEntityEvent;
+import org.spongepowered.api.event.entity.living.humanoid.player.RespawnPlayerEvent;
+import org.spongepowered.api.event.network.ClientConnectionEvent;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.world.World;
+
+/**
+ * A per-world grid of online player positions, with one cell per chunk column. Movement listeners only touch
+ * the grid when a player crosses into a different cell, and spatial queries only visit the cells that overlap
+ * the queried area. Online players are also re-checked every second in case a move went unreported (eg a
+ * cross-world teleport made by another plugin).
+ *
+ * @author dags <dags@dags.me>
+ */
+class PlayerGrid {
+
+    private static final int SHIFT = 4;
+    private static final int CELL_SIZE = 1 << SHIFT;
+    // beyond this many rings a nearest-player search visits every cell of the world instead
+    private static final int MAX_RINGS = 32;
+    private static final long RESYNC_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
+    private static final Map<UUID, Map<Long, Set<UUID>>> worlds = new ConcurrentHashMap<>();
+    private static final Map<UUID, Cell> players = new ConcurrentHashMap<>();
+
+    static void register(PluginContainer plugin) {
+        Sponge.getEventManager().registerListener(plugin, ClientConnectionEvent.Join.class, Order.PRE, e -> {
+            update(e.getTargetEntity().getUniqueId(), e.getTargetEntity().getTransform());
+        });
+        Sponge.getEventManager().registerListener(plugin, ClientConnectionEvent.Disconnect.class, Order.POST, e -> {
+            remove(e.getTargetEntity().getUniqueId());
+        });
+        Sponge.getEventManager().registerListener(plugin, MoveEntityEvent.class, Order.POST, e -> {
+            if (!e.isCancelled() && e.getTargetEntity() instanceof Player) {
+                update(e.getTargetEntity().getUniqueId(), e.getToTransform());
+            }
+        });
+        Sponge.getEventManager().registerListener(plugin, RespawnPlayerEvent.class, Order.POST, e -> {
+            update(e.getTargetEntity().getUniqueId(), e.getToTransform());
+        });
+        Sponge.getScheduler().createTaskBuilder()
+                .name("commandbus-player-grid")
+                .interval(RESYNC_INTERVAL, TimeUnit.MILLISECONDS)
+                .execute(PlayerGrid::resync)
+                .submit(plugin);
+    }
+
+    private static void resync() {
+        if (Sponge.isServerAvailable()) {
+            for (Player player : Sponge.getServer().getOnlinePlayers()) {
+                update(player.getUniqueId(), player.getTransform());
+            }
+        }
+    }
+
+    static List<Player> inWorld(World world) {
+        Map<Long, Set<UUID>> grid = worlds.get(world.getUniqueId());
+        if (grid == null) {
+            return Collections.emptyList();
+        }
+        List<Player> result = new ArrayList<>();
+        for (Set<UUID> cell : grid.values()) {
+            collect(cell, world, p -> true, result);
+        }
+        return result;
+    }
+
+    static List<Player> within(World world, Vector3d center, double radius) {
+        double radiusSq = radius * radius;
+        return inCells(world, center.sub(radius, radius, radius), center.add(radius, radius, radius),
+                p -> p.getLocation().getPosition().distanceSquared(center) <= radiusSq);
+    }
+
+    static List<Player> inRegion(World world, Vector3d min, Vector3d max) {
+        Vector3d lower = min.min(max);
+        Vector3d upper = min.max(max);
+        return inCells(world, lower, upper, p -> {
+            Vector3d pos = p.getLocation().getPosition();
+            return pos.getX() >= lower.getX() && pos.getY() >= lower.getY() && pos.getZ() >= lower.getZ()
+                    && pos.getX() <= upper.getX() && pos.getY() <= upper.getY() && pos.getZ() <= upper.getZ();
+        });
+    }
+
+    static Optional<Player> nearest(World world, Vector3d center, Predicate<Player> filter) {
+        Map<Long, Set<UUID>> grid = worlds.get(world.getUniqueId());
+        if (grid == null) {
+            return Optional.empty();
+        }
+
+        int cx = cell(center.getX());
+        int cz = cell(center.getZ());
+        Player best = null;
+        double bestDistance = Double.MAX_VALUE;
+        List<Player> candidates = new ArrayList<>();
+
+        for (int ring = 0; ring <= MAX_RINGS; ring++) {
+            // any player in this ring or beyond is at least this far away
+            double minDistance = Math.max(0, (ring - 1) * CELL_SIZE);
+            if (best != null && minDistance * minDistance > bestDistance) {
+                return Optional.of(best);
+            }
+
+            candidates.clear();
+            for (int x = cx - ring; x <= cx + ring; x++) {
+                for (int z = cz - ring; z <= cz + ring; z++) {
+                    if (Math.abs(x - cx) == ring || Math.abs(z - cz) == ring) {
+                        Set<UUID> cell = grid.get(key(x, z));
+                        if (cell != null) {
+                            collect(cell, world, filter, candidates);
+                        }
+                    }
+                }
+            }
+
+            for (Player player : candidates) {
+                double distance = player.getLocation().getPosition().distanceSquared(center);
+                if (distance < bestDistance) {
+                    best = player;
+                    bestDistance = distance;
+                }
+            }
+        }
+
+        // nothing close by, fall back to checking every player in the world
+        for (Player player : inWorld(world)) {
+            if (!filter.test(player)) {
+                continue;
+            }
+            double distance = player.getLocation().getPosition().distanceSquared(center);
+            if (distance < bestDistance) {
+                best = player;
+                bestDistance = distance;
+            }
+        }
+
+        return Optional.ofNullable(best);
+    }
+
+    private static List<Player> inCells(World world, Vector3d min, Vector3d max, Predicate<Player> filter) {
+        Map<Long, Set<UUID>> grid = worlds.get(world.getUniqueId());
+        if (grid == null) {
+            return Collections.emptyList();
+        }
+
+        int minX = cell(min.getX());
+        int minZ = cell(min.getZ());
+        int maxX = cell(max.getX());
+        int maxZ = cell(max.getZ());
+
+        // a huge area is cheaper to answer by visiting the occupied cells than every cell in the area
+        if ((long) (maxX - minX + 1) * (maxZ - minZ + 1) > grid.size()) {
+            List<Player> result = new ArrayList<>();
+            for (Map.Entry<Long, Set<UUID>> entry : grid.entrySet()) {
+                int x = (int) (entry.getKey() >> 32);
+                int z = (int) (long) entry.getKey();
+                if (x >= minX && x <= maxX && z >= minZ && z <= maxZ) {
+                    collect(entry.getValue(), world, filter, result);
+                }
+            }
+            return result;
+        }
+
+        List<Player> result = new ArrayList<>();
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                Set<UUID> cell = grid.get(key(x, z));
+                if (cell != null) {
+                    collect(cell, world, filter, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void collect(Set<UUID> cell, World world, Predicate<Player> filter, List<Player> result) {
+        for (UUID id : cell) {
+            Optional<Player> player = Sponge.getServer().getPlayer(id);
+            if (player.isPresent() && player.get().getWorld().getUniqueId().equals(world.getUniqueId()) && filter.test(player.get())) {
+                result.add(player.get());
+            }
+        }
+    }
+
+    private static void update(UUID id, Transform<World> transform) {
+        UUID world = transform.getExtent().getUniqueId();
+        int x = cell(transform.getPosition().getX());
+        int z = cell(transform.getPosition().getZ());
+
+        Cell current = players.get(id);
+        if (current != null && current.world.equals(world) && current.x == x && current.z == z) {
+            return;
+        }
+
+        Cell next = new Cell(world, x, z);
+        if (current != null) {
+            current.remove(id);
+        }
+        next.add(id);
+        players.put(id, next);
+    }
+
+    private static void remove(UUID id) {
+        Cell current = players.remove(id);
+        if (current != null) {
+            current.remove(id);
+        }
+    }
+
+    private static int cell(double coordinate) {
+        return ((int) Math.floor(coordinate)) >> SHIFT;
+    }
+
+    private static long key(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    private static class Cell {
+
+        private final UUID world;
+        private final int x;
+        private final int z;
+
+        private Cell(UUID world, int x, int z) {
+            this.world = world;
+            this.x = x;
+            this.z = z;
+        }
+
+        private void add(UUID id) {
+            worlds.computeIfAbsent(world, w -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(key(x, z), k -> ConcurrentHashMap.newKeySet())
+                    .add(id);
+        }
+
+        private void remove(UUID id) {
+            Map<Long, Set<UUID>> grid = worlds.get(world);
+            if (grid != null) {
+                grid.computeIfPresent(key(x, z), (k, cell) -> {
+                    cell.remove(id);
+                    return cell.isEmpty() ? null : cell;
+                });
+            }
+        }
+    }
+}
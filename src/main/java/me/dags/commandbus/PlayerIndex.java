@@ -0,0 +1,65 @@
+package me.dags.commandbus;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.event.Order;
+import org.spongepowered.api.event.network.ClientConnectionEvent;
+import org.spongepowered.api.plugin.PluginContainer;
+
+/**
+ * Keeps a prefix index of the names of online players, updated by join/quit listeners.
+ *
+ * @author dags <dags@dags.me>
+ */
+class PlayerIndex {
+
+    private static final NameIndex names = new NameIndex();
+
+    static void register(PluginContainer plugin) {
+        Sponge.getEventManager().registerListener(plugin, ClientConnectionEvent.Join.class, Order.PRE, e -> add(e.getTargetEntity()));
+        Sponge.getEventManager().registerListener(plugin, ClientConnectionEvent.Disconnect.class, Order.POST, e -> remove(e.getTargetEntity()));
+        if (Sponge.isServerAvailable()) {
+            Sponge.getServer().getOnlinePlayers().forEach(PlayerIndex::add);
+        }
+    }
+
+    static Optional<Player> find(String prefix) {
+        return names.first(prefix).flatMap(e -> Context.player(e.getId()));
+    }
+
+    /**
+     * The online player with exactly the given (case-insensitive) name.
+     */
+    static Optional<Player> get(String name) {
+        return names.get(name).flatMap(e -> Context.player(e.getId()));
+    }
+
+    static Stream<Player> match(String prefix) {
+        return names.prefix(prefix)
+                .map(e -> Context.player(e.getId()))
+                .filter(Optional::isPresent)
+                .map(Optional::get);
+    }
+
+    static boolean isOnline(String name) {
+        return names.get(name).isPresent();
+    }
+
+    static Stream<String> names() {
+        return names.all().map(NameIndex.Entry::getName);
+    }
+
+    static Stream<String> names(String prefix) {
+        return names.prefix(prefix).map(NameIndex.Entry::getName);
+    }
+
+    private static void add(Player player) {
+        names.put(player.getName(), player.getUniqueId());
+    }
+
+    private static void remove(Player player) {
+        names.remove(player.getName(), player.getUniqueId());
+    }
+}
@@ -0,0 +1,32 @@
+package me.dags.commandbus;
+
+import java.util.stream.Stream;
+import me.dags.command.element.function.Options;
+
+/**
+ * Options that are given the partial input being completed and the maximum number of suggestions wanted,
+ * so that they can filter & bound their results at the source rather than producing every candidate.
+ *
+ * Register implementations for a type through {@link CommandBus#elements()}.
+ *
+ * @author dags <dags@dags.me>
+ */
+@FunctionalInterface
+public interface PrefixOptions extends Options {
+
+    /**
+     * @param prefix the partial input being completed, possibly empty
+     * @param limit the maximum number of suggestions to return
+     * @return up to 'limit' suggestions, best first
+     */
+    Stream<String> get(String prefix, int limit);
+
+    @Override
+    default Stream<String> get() {
+        Context context = Context.get();
+        if (context == null || !context.isCompletion()) {
+            return get("", Integer.MAX_VALUE);
+        }
+        return get(context.getPrefix(), context.getLimit());
+    }
+}
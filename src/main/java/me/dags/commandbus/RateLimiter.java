@@ -0,0 +1,84 @@
+package me.dags.commandbus;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token buckets keyed by unique id.
+ *
+ * Each bucket is a single 'theoretical arrival time' (GCRA): a request is allowed if, after adding one
+ * emission interval to it, it does not run further ahead of the current time than the burst allows. A bucket
+ * whose arrival time has passed is full, so it can be discarded without changing behaviour; such idle buckets
+ * are swept out periodically.
+ *
+ * @author dags <dags@dags.me>
+ */
+class RateLimiter {
+
+    private static final long SWEEP_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+    // the largest interval or allowance used, leaving headroom so that adding them to a timestamp can't overflow
+    private static final long MAX_NANOS = Long.MAX_VALUE / 4;
+
+    private final long interval;
+    private final long allowance;
+    private final Map<UUID, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+    RateLimiter(double perSecond, int burst) {
+        validate(perSecond, burst);
+        this.interval = Math.max(1L, (long) Math.min(MAX_NANOS, TimeUnit.SECONDS.toNanos(1) / perSecond));
+        // how far ahead of the current time a bucket may run: one interval per request in the burst
+        this.allowance = burst > MAX_NANOS / interval ? MAX_NANOS : interval * burst;
+    }
+
+    static void validate(double perSecond, int burst) {
+        if (!(perSecond > 0) || Double.isInfinite(perSecond)) {
+            throw new IllegalArgumentException("Rate must be a positive number of requests per second: " + perSecond);
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("Burst must be positive: " + burst);
+        }
+    }
+
+    boolean tryAcquire(UUID id) {
+        long now = System.nanoTime();
+        sweep(now);
+
+        AtomicLong bucket = buckets.get(id);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(id, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            long arrival = bucket.get();
+            long next = Math.max(arrival, now) + interval;
+            if (next - now > allowance) {
+                return false;
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a request taken by {@link #tryAcquire(UUID)}, ie when another limiter rejected the same request.
+     */
+    void release(UUID id) {
+        AtomicLong bucket = buckets.get(id);
+        if (bucket != null) {
+            bucket.addAndGet(-interval);
+        }
+    }
+
+    private void sweep(long now) {
+        long last = lastSweep.get();
+        if (now - last < SWEEP_INTERVAL || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+}
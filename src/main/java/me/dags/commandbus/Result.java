@@ -0,0 +1,79 @@
+package me.dags.commandbus;
+
+import me.dags.command.command.CommandException;
+
+/**
+ * The outcome of a parse attempt. A failure holds its message format & arguments and only formats them if the
+ * message is actually read.
+ *
+ * @author dags <dags@dags.me>
+ */
+final class Result<T> {
+
+    private final T value;
+    private final String format;
+    private final Object[] args;
+
+    private Result(T value, String format, Object[] args) {
+        this.value = value;
+        this.format = format;
+        this.args = args;
+    }
+
+    boolean isPresent() {
+        return format == null;
+    }
+
+    T getValue() {
+        return value;
+    }
+
+    String getMessage() {
+        return format == null ? "" : String.format(format, args);
+    }
+
+    /**
+     * Returns the value, or throws a (stackless) CommandException carrying the failure message.
+     */
+    T get() throws CommandException {
+        if (format != null) {
+            throw new Failure(this);
+        }
+        return value;
+    }
+
+    static <T> Result<T> of(T value) {
+        return new Result<>(value, null, null);
+    }
+
+    static <T> Result<T> failure(String format, Object... args) {
+        return new Result<>(null, format, args);
+    }
+
+    /**
+     * A CommandException that skips stack trace collection and formats its message on first use.
+     */
+    static class Failure extends CommandException {
+
+        private final Result<?> result;
+        private String message = null;
+
+        private Failure(Result<?> result) {
+            super("");
+            this.result = result;
+        }
+
+        @Override
+        public String getMessage() {
+            if (message == null) {
+                message = result.getMessage();
+            }
+            return message;
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package me.dags.commandbus;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import org.spongepowered.api.entity.living.player.Player;
+
+/**
+ * A command argument type holding the players matched by a name or a selector.
+ *
+ * Accepts a player name (matching all players whose names start with it) or one of the selectors:
+ * <ul>
+ *     <li>{@code @p} - the player nearest to the command source</li>
+ *     <li>{@code @a} - all players</li>
+ * </ul>
+ * Either selector may be followed by a comma separated list of filters in square brackets:
+ * <ul>
+ *     <li>{@code world=<name>} - players in the given world</li>
+ *     <li>{@code r=<radius>} - players within the radius of the source (or of {@code x,y,z})</li>
+ *     <li>{@code x=,y=,z=,dx=,dy=,dz=} - players within the region spanning from x,y,z to x+dx,y+dy,z+dz</li>
+ * </ul>
+ * For example: {@code @a[r=32]}, {@code @p[world=nether]}, {@code @a[x=0,y=0,z=0,dx=100,dy=256,dz=100]}.
+ *
+ * @author dags <dags@dags.me>
+ */
+public final class Selection implements Iterable<Player> {
+
+    private final List<Player> players;
+
+    Selection(List<Player> players) {
+        this.players = Collections.unmodifiableList(players);
+    }
+
+    public Collection<Player> getPlayers() {
+        return players;
+    }
+
+    public boolean isEmpty() {
+        return players.isEmpty();
+    }
+
+    @Override
+    public Iterator<Player> iterator() {
+        return players.iterator();
+    }
+}
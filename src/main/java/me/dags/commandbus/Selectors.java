@@ -0,0 +1,138 @@
+package me.dags.commandbus;
+
+import com.flowpowered.math.vector.Vector3d;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.world.Locatable;
+import org.spongepowered.api.world.Location;
+import org.spongepowered.api.world.World;
+
+/**
+ * Resolves player selectors (see {@link Selection}) against the {@link PlayerGrid}.
+ *
+ * @author dags <dags@dags.me>
+ */
+final class Selectors {
+
+    private static final Set<String> FILTERS = new HashSet<>(Arrays.asList("world", "r", "x", "y", "z", "dx", "dy", "dz"));
+
+    private Selectors() {
+
+    }
+
+    static boolean isSelector(String s) {
+        return s.startsWith("@");
+    }
+
+    static Result<List<Player>> select(String selector) {
+        if (selector.length() < 2 || (selector.charAt(1) != 'p' && selector.charAt(1) != 'a')) {
+            return Result.failure("Unknown selector '%s'", selector);
+        }
+
+        Map<String, String> filters = new HashMap<>();
+        if (selector.length() > 2) {
+            if (selector.charAt(2) != '[' || !selector.endsWith("]")) {
+                return Result.failure("Invalid selector '%s'", selector);
+            }
+            for (String filter : selector.substring(3, selector.length() - 1).split(",")) {
+                int split = filter.indexOf('=');
+                if (split <= 0) {
+                    return Result.failure("Invalid selector filter '%s'", filter);
+                }
+                String key = filter.substring(0, split).trim().toLowerCase();
+                if (!FILTERS.contains(key)) {
+                    // ignoring an unknown filter would widen the selection to every player in the world
+                    return Result.failure("Unknown selector filter '%s'", key);
+                }
+                filters.put(key, filter.substring(split + 1).trim());
+            }
+        }
+
+        if (Context.snapshot() != null) {
+            // selectors read player positions, which a snapshot doesn't hold
+            return Result.failure("Selector '%s' cannot be resolved here", selector);
+        }
+
+        Context context = Context.get();
+        CommandSource source = context == null ? null : context.getSource();
+        Optional<Location<World>> origin = source instanceof Locatable ? Optional.of(((Locatable) source).getLocation()) : Optional.empty();
+
+        World world = origin.map(Location::getExtent).orElse(null);
+        if (filters.containsKey("world")) {
+            Optional<World> named = Sponge.getServer().getWorld(filters.get("world"));
+            if (!named.isPresent()) {
+                return Result.failure("Could not find World '%s'", filters.get("world"));
+            }
+            world = named.get();
+        }
+
+        Vector3d center = origin.map(Location::getPosition).orElse(Vector3d.ZERO);
+        if (filters.containsKey("x") || filters.containsKey("y") || filters.containsKey("z")) {
+            Result<Vector3d> position = Coordinates.vector3d(
+                    filters.getOrDefault("x", "~"),
+                    filters.getOrDefault("y", "~"),
+                    filters.getOrDefault("z", "~")
+            );
+            if (!position.isPresent()) {
+                return Result.failure("%s", position.getMessage());
+            }
+            center = position.getValue();
+        }
+
+        if (world == null && (selector.charAt(1) == 'p' || !filters.isEmpty())) {
+            return Result.failure("Selector '%s' requires a world", selector);
+        }
+
+        List<Player> players;
+        if (filters.containsKey("r")) {
+            String r = filters.get("r");
+            if (!Numbers.isDouble(r, 0)) {
+                return Result.failure("'%s' is not a valid radius", r);
+            }
+            players = PlayerGrid.within(world, center, Numbers.parseDouble(r, 0));
+        } else if (filters.containsKey("dx") || filters.containsKey("dy") || filters.containsKey("dz")) {
+            Result<Vector3d> size = Coordinates.vector3d(
+                    filters.getOrDefault("dx", "0"),
+                    filters.getOrDefault("dy", "0"),
+                    filters.getOrDefault("dz", "0")
+            );
+            if (!size.isPresent()) {
+                return Result.failure("%s", size.getMessage());
+            }
+            players = PlayerGrid.inRegion(world, center, center.add(size.getValue()));
+        } else if (world != null && !filters.isEmpty()) {
+            players = PlayerGrid.inWorld(world);
+        } else if (selector.charAt(1) == 'a') {
+            players = new ArrayList<>(Sponge.getServer().getOnlinePlayers());
+        } else {
+            players = null;
+        }
+
+        if (selector.charAt(1) == 'p') {
+            Vector3d from = center;
+            Optional<Player> nearest = players == null
+                    ? PlayerGrid.nearest(world, center, p -> true)
+                    : players.stream().min((p1, p2) -> Double.compare(
+                            p1.getLocation().getPosition().distanceSquared(from),
+                            p2.getLocation().getPosition().distanceSquared(from)));
+            return Result.of(nearest.map(Collections::singletonList).orElse(Collections.emptyList()));
+        }
+
+        return Result.of(players);
+    }
+
+    static Result<List<Player>> match(String prefix) {
+        return Result.of(PlayerIndex.match(prefix).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,105 @@
+package me.dags.commandbus;
+
+import java.util.Optional;
+import javax.annotation.Nullable;
+import org.spongepowered.api.plugin.PluginContainer;
+
+/**
+ * The optional behaviours applied to the SpongeCommands created by a CommandBus.
+ *
+ * @author dags <dags@dags.me>
+ */
+class Settings {
+
+    static final Settings DEFAULT = new Settings();
+
+    private PluginContainer owner = null;
+    private AsyncSuggestions suggestions = null;
+    private AsyncExecution execution = null;
+    private boolean combinedDocs = false;
+    private RateLimiter sourceRateLimiter = null;
+    private double commandRate = 0;
+    private int commandBurst = 0;
+    private int suggestionLimit = 100;
+    private UserResolver userResolver = null;
+
+    PluginContainer getOwner() {
+        return owner;
+    }
+
+    Settings setOwner(PluginContainer owner) {
+        this.owner = owner;
+        return this;
+    }
+
+    Optional<AsyncSuggestions> getAsyncSuggestions() {
+        return Optional.ofNullable(suggestions);
+    }
+
+    Settings setAsyncSuggestions(@Nullable AsyncSuggestions suggestions) {
+        this.suggestions = suggestions;
+        return this;
+    }
+
+    Optional<AsyncExecution> getAsyncExecution() {
+        return Optional.ofNullable(execution);
+    }
+
+    Settings setAsyncExecution(@Nullable AsyncExecution execution) {
+        this.execution = execution;
+        return this;
+    }
+
+    boolean isCombinedDocs() {
+        return combinedDocs;
+    }
+
+    Settings setCombinedDocs(boolean combinedDocs) {
+        this.combinedDocs = combinedDocs;
+        return this;
+    }
+
+    Optional<RateLimiter> getSourceRateLimiter() {
+        return Optional.ofNullable(sourceRateLimiter);
+    }
+
+    Settings setSourceRateLimiter(@Nullable RateLimiter limiter) {
+        this.sourceRateLimiter = limiter;
+        return this;
+    }
+
+    /**
+     * Creates a new rate limiter for a single command, if per-command rate limiting is enabled.
+     */
+    Optional<RateLimiter> newCommandRateLimiter() {
+        if (commandRate <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new RateLimiter(commandRate, commandBurst));
+    }
+
+    Settings setCommandRateLimit(double perSecond, int burst) {
+        RateLimiter.validate(perSecond, burst);
+        this.commandRate = perSecond;
+        this.commandBurst = burst;
+        return this;
+    }
+
+    Optional<UserResolver> getUserResolver() {
+        return Optional.ofNullable(userResolver);
+    }
+
+    Settings setUserResolver(@Nullable UserResolver resolver) {
+        this.userResolver = resolver;
+        return this;
+    }
+
+    int getSuggestionLimit() {
+        return suggestionLimit;
+    }
+
+    Settings setSuggestionLimit(int limit) {
+        this.suggestionLimit = limit;
+        return this;
+    }
+}
@@ -0,0 +1,77 @@
+package me.dags.commandbus;
+
+import com.flowpowered.math.vector.Vector3d;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.entity.Entity;
+import org.spongepowered.api.entity.living.Living;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.world.Locatable;
+import org.spongepowered.api.world.World;
+
+/**
+ * The server state that parsers & options read, captured on the server thread so that suggestions can be computed
+ * on a worker thread without touching the server.
+ *
+ * @author dags <dags@dags.me>
+ */
+class Snapshot {
+
+    private final Vector3d position;
+    private final Vector3d rotation;
+    private final Collection<World> worlds;
+    private final Map<UUID, Player> players;
+
+    private Snapshot(@Nullable Vector3d position, @Nullable Vector3d rotation, Collection<World> worlds, Map<UUID, Player> players) {
+        this.position = position;
+        this.rotation = rotation;
+        this.worlds = worlds;
+        this.players = players;
+    }
+
+    /**
+     * The source's position, if it has one.
+     */
+    Optional<Vector3d> getPosition() {
+        return Optional.ofNullable(position);
+    }
+
+    /**
+     * The source's (head) rotation, if it is an entity.
+     */
+    Optional<Vector3d> getRotation() {
+        return Optional.ofNullable(rotation);
+    }
+
+    Collection<World> getWorlds() {
+        return worlds;
+    }
+
+    Optional<Player> getPlayer(UUID id) {
+        return Optional.ofNullable(players.get(id));
+    }
+
+    /**
+     * Captures the source's position & the server's worlds and players. Must be called on the server thread.
+     */
+    static Snapshot of(CommandSource source) {
+        Vector3d position = source instanceof Locatable ? ((Locatable) source).getLocation().getPosition() : null;
+        Vector3d rotation = null;
+        if (source instanceof Entity) {
+            rotation = source instanceof Living ? ((Living) source).getHeadRotation() : ((Entity) source).getRotation();
+        }
+        Collection<Player> online = Sponge.getServer().getOnlinePlayers();
+        Map<UUID, Player> players = new HashMap<>(online.size() * 2);
+        for (Player player : online) {
+            players.put(player.getUniqueId(), player);
+        }
+        return new Snapshot(position, rotation, new ArrayList<>(Sponge.getServer().getWorlds()), players);
+    }
+}
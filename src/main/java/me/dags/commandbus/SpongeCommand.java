@@ -1,21 +1,30 @@
 package me.dags.commandbus;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nullable;
 import me.dags.command.command.Command;
 import me.dags.command.command.CommandExecutor;
+import me.dags.command.command.Input;
 import org.spongepowered.api.command.CommandCallable;
 import org.spongepowered.api.command.CommandException;
 import org.spongepowered.api.command.CommandResult;
 import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.entity.living.player.User;
 import org.spongepowered.api.text.Text;
 import org.spongepowered.api.text.action.TextActions;
 import org.spongepowered.api.text.format.TextColors;
 import org.spongepowered.api.text.format.TextStyles;
+import org.spongepowered.api.util.Identifiable;
 import org.spongepowered.api.world.Location;
 import org.spongepowered.api.world.World;
 
@@ -24,20 +33,74 @@ import org.spongepowered.api.world.World;
  */
 class SpongeCommand extends Command<CommandSource> implements CommandCallable {
 
+    private static final CommandException THROTTLED = new CommandException(Text.of("You are sending commands too quickly"));
+
+    private final Settings settings;
+    private final RateLimiter rateLimiter;
+    private final Metrics.Stats stats;
+    private final DispatchTree tree;
+    private final List<CommandExecutor> sorted;
+    private final List<Text> lines;
+    // rendered texts, keyed by the executor permissions held by the viewer
+    private final Map<Set<String>, Text> help = new ConcurrentHashMap<>();
+    private final Map<Set<String>, Text> shortDescriptions = new ConcurrentHashMap<>();
+
     SpongeCommand(Collection<String> aliases, Collection<CommandExecutor> executors) {
+        this(aliases, executors, Settings.DEFAULT);
+    }
+
+    SpongeCommand(Collection<String> aliases, Collection<CommandExecutor> executors, Settings settings) {
         super(aliases, executors);
+        this.settings = settings;
+        this.rateLimiter = settings.newCommandRateLimiter().orElse(null);
+        this.stats = Metrics.of(settings.getOwner(), getAlias());
+        this.tree = new DispatchTree(getExecutors());
+        this.sorted = new ArrayList<>(getExecutors());
+        this.sorted.sort(Comparator.comparing(e -> e.getUsage().value()));
+        this.lines = new ArrayList<>(sorted.size());
+        for (CommandExecutor e : sorted) {
+            lines.add(Text.builder("/" + e.getUsage().value())
+                    .onHover(TextActions.showText(Text.of(e.getDescription().value())))
+                    .build());
+        }
     }
 
     @Override
     public boolean testPermission(CommandSource source, String permission) {
-        return source.hasPermission(permission);
+        Context context = Context.get();
+        if (context != null && context.hasPermissionSnapshot(source)) {
+            return context.hasPermission(permission);
+        }
+        return PermissionCache.hasPermission(source, permission);
     }
 
     @Override
     public CommandResult process(CommandSource source, String arguments) throws CommandException {
+        if (isThrottled(source)) {
+            throw THROTTLED;
+        }
+        if (!tree.accepts(arguments)) {
+            throw new CommandException(Text.of("Unknown arguments '", arguments, "'. ", getUsage(source)));
+        }
+        Optional<AsyncExecution> async = settings.getAsyncExecution();
+        if (async.isPresent()) {
+            async.get().execute(settings.getOwner(), this, source, arguments);
+            return CommandResult.success();
+        }
+        Optional<UserResolver> users = settings.getUserResolver();
+        Context context = users.isPresent() ? Context.of(source).deferring() : Context.of(source);
         try {
-            super.processArguments(source, arguments);
+            context.call(() -> {
+                dispatch(source, arguments);
+                return null;
+            });
             return CommandResult.success();
+        } catch (Deferral d) {
+            defer(users.get(), source, arguments, context.getDeferred(), Collections.emptyMap());
+            return CommandResult.success();
+        } catch (me.dags.command.command.CommandException e) {
+            // parse failures are reported by message alone
+            throw new CommandException(Text.of(e.getMessage()));
         } catch (Throwable t) {
             throw new CommandException(Text.of("Error executing command"), t);
         }
@@ -45,7 +108,23 @@ class SpongeCommand extends Command<CommandSource> implements CommandCallable {
 
     @Override
     public List<String> getSuggestions(CommandSource source, String arguments, @Nullable Location<World> targetPosition) throws CommandException {
-        return super.suggestCommand(source, arguments);
+        if (isThrottled(source)) {
+            return Collections.emptyList();
+        }
+        long start = System.nanoTime();
+        try {
+            List<String> literals = tree.suggest(arguments, permission -> testPermission(source, permission));
+            if (literals != null) {
+                return literals;
+            }
+            Optional<AsyncSuggestions> async = settings.getAsyncSuggestions();
+            if (async.isPresent()) {
+                return async.get().suggest(this, source, arguments);
+            }
+            return suggest(source, arguments);
+        } finally {
+            stats.recordSuggest(System.nanoTime() - start);
+        }
     }
 
     @Override
@@ -60,16 +139,7 @@ class SpongeCommand extends Command<CommandSource> implements CommandCallable {
 
     @Override
     public Optional<Text> getShortDescription(CommandSource source) {
-        String command = "/help " + getAlias();
-        Text.Builder builder = Text.builder();
-        builder.append(Text.of("See "));
-        builder.append(Text.builder(command)
-                .color(TextColors.GREEN)
-                .style(TextStyles.UNDERLINE)
-                .onClick(TextActions.runCommand(command)).build());
-        builder.append(Text.of(" for more information"));
-        builder.onHover(TextActions.showText(generateHelp(source)));
-        return Optional.of(builder.build());
+        return Optional.of(shortDescriptions.computeIfAbsent(getPermissions(source), this::renderShortDescription));
     }
 
     @Override
@@ -88,23 +158,164 @@ class SpongeCommand extends Command<CommandSource> implements CommandCallable {
         return getAliases().get(0);
     }
 
+    /**
+     * Returns false if the arguments cannot match any of this command's usages.
+     */
+    boolean accepts(String arguments) {
+        return tree.accepts(arguments);
+    }
+
+    void dispatch(CommandSource source, String arguments) throws Exception {
+        long start = System.nanoTime();
+        boolean success = false;
+        boolean deferred = false;
+        Context context = Context.get();
+        if (context == null || context.getSource() != source) {
+            context = Context.of(source);
+        }
+        try {
+            context.call(() -> {
+                super.processArguments(source, arguments);
+                return null;
+            });
+            success = true;
+        } catch (Deferral d) {
+            // only the attempt that actually runs (or fails) is recorded
+            deferred = true;
+            throw d;
+        } finally {
+            if (!deferred) {
+                stats.recordExecute(System.nanoTime() - start, success);
+            }
+        }
+    }
+
+    /**
+     * Loads the deferred users off-thread & runs the command again with them (and any loaded earlier) pinned to
+     * its context, so the re-run never depends on them still being cached.
+     */
+    private void defer(UserResolver users, CommandSource source, String arguments, List<String> names, Map<String, Optional<User>> loaded) {
+        users.resolve(settings.getOwner(), source, names, loaded, pinned -> redispatch(users, source, arguments, pinned));
+    }
+
+    private void redispatch(UserResolver users, CommandSource source, String arguments, Map<String, Optional<User>> loaded) {
+        Context context = Context.of(source).deferring().withUsers(loaded);
+        try {
+            context.call(() -> {
+                dispatch(source, arguments);
+                return null;
+            });
+        } catch (Deferral d) {
+            // a later user argument still needs loading
+            defer(users, source, arguments, context.getDeferred(), loaded);
+        } catch (me.dags.command.command.CommandException e) {
+            source.sendMessage(Text.of(TextColors.RED, e.getMessage()));
+        } catch (Throwable t) {
+            settings.getOwner().getLogger().error("Error executing command /" + getAlias() + " " + arguments, t);
+            source.sendMessage(Text.of(TextColors.RED, "Error executing command"));
+        }
+    }
+
+    List<String> suggest(CommandSource source, String arguments) {
+        int limit = settings.getSuggestionLimit();
+        Context current = Context.get();
+        Context context = current != null && current.getSource() == source ? current : Context.of(source);
+        Context completion = context.forCompletion(lastToken(arguments), limit);
+        if (settings.getUserResolver().isPresent()) {
+            // never load offline users from storage just to complete a later argument
+            completion = completion.deferring();
+        }
+        List<String> suggestions = completion.supply(() -> super.suggestCommand(source, arguments));
+        if (suggestions.size() > limit) {
+            return suggestions.subList(0, limit);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns the (partial) argument being completed, tokenized the same way the library parses the input so that
+     * a quoted argument is completed as a whole & without its quotes.
+     */
+    private static String lastToken(String arguments) {
+        String last = "";
+        try {
+            Input input = new Input(arguments);
+            while (input.hasNext()) {
+                last = input.next();
+            }
+        } catch (me.dags.command.command.CommandException e) {
+            return arguments.substring(arguments.lastIndexOf(' ') + 1);
+        }
+        // a trailing space starts a new argument, unless it falls inside an open quote
+        if (arguments.endsWith(" ") && !last.endsWith(" ")) {
+            return "";
+        }
+        return last;
+    }
+
+    /**
+     * Returns the executor permissions held by the source.
+     */
+    Set<String> getPermissions(CommandSource source) {
+        Set<String> permissions = new HashSet<>();
+        for (CommandExecutor e : getExecutors()) {
+            String permission = e.getPermission().value();
+            if (testPermission(source, permission)) {
+                permissions.add(permission);
+            }
+        }
+        return permissions;
+    }
+
+    private boolean isThrottled(CommandSource source) {
+        if (!(source instanceof Identifiable)) {
+            return false;
+        }
+        UUID id = ((Identifiable) source).getUniqueId();
+        Optional<RateLimiter> shared = settings.getSourceRateLimiter();
+        if (shared.isPresent() && !shared.get().tryAcquire(id)) {
+            return true;
+        }
+        if (rateLimiter != null && !rateLimiter.tryAcquire(id)) {
+            // a rejected request must not use up the source's shared allowance
+            shared.ifPresent(limiter -> limiter.release(id));
+            return true;
+        }
+        return false;
+    }
+
     private Text generateHelp(CommandSource source) {
-        AtomicBoolean first = new AtomicBoolean(true);
+        return help.computeIfAbsent(getPermissions(source), this::renderHelp);
+    }
+
+    private Text renderHelp(Set<String> permissions) {
+        boolean first = true;
         Text.Builder builder = Text.builder();
 
-        getExecutors().stream()
-                .filter(e -> testPermission(source, e.getPermission().value()))
-                .sorted(Comparator.comparing(e -> e.getUsage().value()))
-                .map(e -> Text.builder("/" + e.getUsage().value())
-                        .onHover(TextActions.showText(Text.of(e.getDescription().value())))
-                        .build()
-                ).forEach(t -> {
-                    if (!first.getAndSet(false)) {
-                        builder.append(Text.NEW_LINE);
-                    }
-                    builder.append(t);
-                });
+        for (int i = 0; i < sorted.size(); i++) {
+            if (!permissions.contains(sorted.get(i).getPermission().value())) {
+                continue;
+            }
+            if (!first) {
+                builder.append(Text.NEW_LINE);
+            }
+            builder.append(lines.get(i));
+            first = false;
+        }
 
         return builder.build();
     }
+
+    private Text renderShortDescription(Set<String> permissions) {
+        String command = "/help " + getAlias();
+        Text.Builder builder = Text.builder();
+        builder.append(Text.of("See "));
+        builder.append(Text.builder(command)
+                .color(TextColors.GREEN)
+                .style(TextStyles.UNDERLINE)
+                .onClick(TextActions.runCommand(command)).build());
+        builder.append(Text.of(" for more information"));
+        builder.onHover(TextActions.showText(help.computeIfAbsent(permissions, this::renderHelp)));
+        return builder.build();
+    }
 }
@@ -1,53 +1,89 @@
 package me.dags.commandbus;
 
-import com.flowpowered.math.vector.Vector3d;
-import com.flowpowered.math.vector.Vector3i;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import me.dags.command.element.ElementFactory;
 import me.dags.command.element.function.Filter;
 import me.dags.command.element.function.Options;
 import me.dags.command.element.function.ValueParser;
 import org.spongepowered.api.CatalogType;
-import org.spongepowered.api.entity.living.player.Player;
-import org.spongepowered.api.entity.living.player.User;
-import org.spongepowered.api.world.World;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.event.game.GameReloadEvent;
+import org.spongepowered.api.plugin.PluginContainer;
 
 /**
  * @author dags <dags@dags.me>
  */
 class SpongeElementFactory extends ElementFactory {
 
+    private static final Map<Class<?>, CatalogTable> catalogTables = new ConcurrentHashMap<>();
+
+    // resolved elements, cached against the class so that repeat lookups don't repeat the resolution
+    private final ClassValue<ValueParser<?>> parsers = new ClassValue<ValueParser<?>>() {
+        @Override
+        protected ValueParser<?> computeValue(Class<?> type) {
+            if (!hasParser(type)) {
+                ValueParser<?> parser = SpongeElements.catalogParser(type);
+                if (parser != null) {
+                    return parser;
+                }
+            }
+            return SpongeElementFactory.super.getParser(type);
+        }
+    };
+
+    private final ClassValue<Options> options = new ClassValue<Options>() {
+        @Override
+        protected Options computeValue(Class<?> type) {
+            if (!hasOptions(type)) {
+                Options options = SpongeElements.catalogOptions(type);
+                if (options != null) {
+                    return options;
+                }
+            }
+            return SpongeElementFactory.super.getOptions(type);
+        }
+    };
+
+    private final ClassValue<Filter> filters = new ClassValue<Filter>() {
+        @Override
+        protected Filter computeValue(Class<?> type) {
+            if (!hasFilter(type)) {
+                Filter filter = SpongeElements.catalogFilter(type);
+                if (filter != null) {
+                    return filter;
+                }
+            }
+            return SpongeElementFactory.super.getFilter(type);
+        }
+    };
+
     private SpongeElementFactory(Builder builder) {
         super(builder);
     }
 
     @Override
     public ValueParser<?> getParser(Class<?> type) {
-        if (!hasParser(type)) {
-            if (CatalogType.class.isAssignableFrom(type)) {
-                return SpongeParsers.catalogType(type);
-            }
-        }
-        return super.getParser(type);
+        return parsers.get(type);
     }
 
     @Override
     public Options getOptions(Class<?> type) {
-        if (!hasOptions(type)) {
-            if (CatalogType.class.isAssignableFrom(type)) {
-                return SpongeOptions.catalogType(type);
-            }
-        }
-        return super.getOptions(type);
+        return options.get(type);
     }
 
     @Override
     public Filter getFilter(Class<?> type) {
-        if (!hasFilter(type)) {
-            if (CatalogType.class.isAssignableFrom(type)) {
-                return Filter.CONTAINS;
-            }
-        }
-        return super.getFilter(type);
+        return filters.get(type);
+    }
+
+    @SuppressWarnings("unchecked")
+    static CatalogTable getCatalogTable(Class<?> type) {
+        return catalogTables.computeIfAbsent(type, t -> new CatalogTable(Sponge.getRegistry().getAllOf((Class<? extends CatalogType>) t)));
+    }
+
+    static void register(PluginContainer plugin) {
+        Sponge.getEventManager().registerListener(plugin, GameReloadEvent.class, e -> catalogTables.clear());
     }
 
     public static Builder builder() {
@@ -60,15 +96,11 @@ class SpongeElementFactory extends ElementFactory {
 
     public static class Builder extends ElementFactory.Builder {
 
+        @SuppressWarnings({"unchecked", "rawtypes"})
         private Builder() {
-                this.parser(Player.class, SpongeParsers.PLAYER)
-                    .parser(User.class, SpongeParsers.USER)
-                    .parser(World.class, SpongeParsers.WORLD)
-                    .parser(Vector3i.class, SpongeParsers.VEC3I)
-                    .parser(Vector3d.class, SpongeParsers.VEC3D)
-                    .options(Player.class, SpongeOptions.PLAYERS)
-                    .options(User.class, SpongeOptions.USERS)
-                    .options(World.class, SpongeOptions.WORLDS);
+            // plugin-provided elements are added on top of (and so replace) the shared Sponge defaults
+            SpongeElements.PARSERS.forEach((type, parser) -> parser((Class) type, (ValueParser) parser));
+            SpongeElements.OPTIONS.forEach((type, options) -> options((Class) type, options));
         }
 
         @Override
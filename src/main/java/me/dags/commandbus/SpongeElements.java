@@ -0,0 +1,93 @@
+package me.dags.commandbus;
+
+import com.flowpowered.math.vector.Vector3d;
+import com.flowpowered.math.vector.Vector3i;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import me.dags.command.element.function.Filter;
+import me.dags.command.element.function.Options;
+import me.dags.command.element.function.ValueParser;
+import org.spongepowered.api.CatalogType;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.entity.living.player.User;
+import org.spongepowered.api.world.World;
+
+/**
+ * The parsers, options & filters that CommandBus provides for Sponge types, shared by every SpongeElementFactory.
+ * Values resolved for CatalogTypes are created once per type and cached against the class.
+ *
+ * @author dags <dags@dags.me>
+ */
+final class SpongeElements {
+
+    static final Map<Class<?>, ValueParser<?>> PARSERS;
+    static final Map<Class<?>, Options> OPTIONS;
+
+    static {
+        Map<Class<?>, ValueParser<?>> parsers = new HashMap<>();
+        parsers.put(Player.class, SpongeParsers.PLAYER);
+        parsers.put(User.class, SpongeParsers.USER);
+        parsers.put(World.class, SpongeParsers.WORLD);
+        parsers.put(Selection.class, SpongeParsers.SELECTION);
+        parsers.put(Vector3i.class, SpongeParsers.VEC3I);
+        parsers.put(Vector3d.class, SpongeParsers.VEC3D);
+        parsers.put(int.class, SpongeParsers.INT);
+        parsers.put(Integer.class, SpongeParsers.INT);
+        parsers.put(long.class, SpongeParsers.LONG);
+        parsers.put(Long.class, SpongeParsers.LONG);
+        parsers.put(double.class, SpongeParsers.DOUBLE);
+        parsers.put(Double.class, SpongeParsers.DOUBLE);
+        PARSERS = Collections.unmodifiableMap(parsers);
+
+        Map<Class<?>, Options> options = new HashMap<>();
+        options.put(Player.class, SpongeOptions.PLAYERS);
+        options.put(Selection.class, SpongeOptions.SELECTION);
+        options.put(User.class, SpongeOptions.USERS);
+        options.put(World.class, SpongeOptions.WORLDS);
+        OPTIONS = Collections.unmodifiableMap(options);
+    }
+
+    private static final ClassValue<ValueParser<?>> catalogParsers = new ClassValue<ValueParser<?>>() {
+        @Override
+        protected ValueParser<?> computeValue(Class<?> type) {
+            return isCatalogType(type) ? SpongeParsers.catalogType(type) : null;
+        }
+    };
+
+    private static final ClassValue<Options> catalogOptions = new ClassValue<Options>() {
+        @Override
+        protected Options computeValue(Class<?> type) {
+            return isCatalogType(type) ? SpongeOptions.catalogType(type) : null;
+        }
+    };
+
+    private SpongeElements() {
+
+    }
+
+    /**
+     * The parser for the type if it is a CatalogType, otherwise null.
+     */
+    static ValueParser<?> catalogParser(Class<?> type) {
+        return catalogParsers.get(type);
+    }
+
+    /**
+     * The options for the type if it is a CatalogType, otherwise null.
+     */
+    static Options catalogOptions(Class<?> type) {
+        return catalogOptions.get(type);
+    }
+
+    /**
+     * The filter for the type if it is a CatalogType, otherwise null.
+     */
+    static Filter catalogFilter(Class<?> type) {
+        return isCatalogType(type) ? Filter.CONTAINS : null;
+    }
+
+    private static boolean isCatalogType(Class<?> type) {
+        return CatalogType.class.isAssignableFrom(type);
+    }
+}
@@ -1,13 +1,7 @@
 package me.dags.commandbus;
 
-import java.util.Comparator;
-import java.util.Optional;
-import me.dags.command.element.function.Options;
-import org.spongepowered.api.CatalogType;
-import org.spongepowered.api.Sponge;
-import org.spongepowered.api.entity.living.player.Player;
-import org.spongepowered.api.entity.living.player.User;
-import org.spongepowered.api.service.user.UserStorageService;
+import java.util.stream.Stream;
+import me.dags.command.element.function.Filter;
 import org.spongepowered.api.world.World;
 
 /**
@@ -15,31 +9,21 @@ import org.spongepowered.api.world.World;
  */
 class SpongeOptions {
 
-    static final Options WORLDS = () -> Sponge.getServer().getWorlds().stream().map(World::getName);
+    static final PrefixOptions WORLDS = (prefix, limit) -> Context.worlds().stream()
+            .map(World::getName)
+            .filter(name -> Filter.STARTS_WITH.test(name, prefix))
+            .limit(limit);
 
-    static final Options PLAYERS = () -> Sponge.getServer().getOnlinePlayers().stream().map(Player::getName);
+    static final PrefixOptions PLAYERS = (prefix, limit) -> PlayerIndex.names(prefix).limit(limit);
 
-    static final Options USERS = () -> {
-        UserStorageService service = Sponge.getServiceManager().provideUnchecked(UserStorageService.class);
-        return service.getAll()
-                .stream()
-                .map(service::get)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .sorted((u1, u2) -> {
-                    if (u1.isOnline() != u2.isOnline()) {
-                        return Boolean.compare(u1.isOnline(), u2.isOnline());
-                    }
-                    return Integer.compare(u1.getName().length(), u2.getName().length());
-                })
-                .map(User::getName);
-    };
+    static final PrefixOptions SELECTION = (prefix, limit) -> Stream.concat(
+            Stream.of("@p", "@a").filter(selector -> selector.startsWith(prefix)),
+            PlayerIndex.names(prefix)
+    ).limit(limit);
 
-    @SuppressWarnings("unchecked")
-    static Options catalogType(Class<?> type) {
-        return () -> Sponge.getRegistry().getAllOf((Class<? extends CatalogType>) type)
-                .stream()
-                .map(CatalogType::getId)
-                .sorted(Comparator.comparingInt(String::length));
+    static final PrefixOptions USERS = UserIndex::names;
+
+    static PrefixOptions catalogType(Class<?> type) {
+        return (prefix, limit) -> SpongeElementFactory.getCatalogTable(type).contains(prefix).limit(limit);
     }
 }
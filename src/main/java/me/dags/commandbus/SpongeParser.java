@@ -0,0 +1,19 @@
+package me.dags.commandbus;
+
+import me.dags.command.command.CommandException;
+import me.dags.command.element.function.ValueParser;
+
+/**
+ * A ValueParser that reports a failed match as a Result rather than by throwing.
+ *
+ * @author dags <dags@dags.me>
+ */
+interface SpongeParser<T> extends ValueParser<T> {
+
+    Result<T> tryParse(String s);
+
+    @Override
+    default T parse(String s) throws CommandException {
+        return tryParse(s).get();
+    }
+}
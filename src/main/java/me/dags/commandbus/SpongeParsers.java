@@ -2,17 +2,15 @@ package me.dags.commandbus;
 
 import com.flowpowered.math.vector.Vector3d;
 import com.flowpowered.math.vector.Vector3i;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 import me.dags.command.command.CommandException;
 import me.dags.command.command.Input;
 import me.dags.command.element.function.Filter;
 import me.dags.command.element.function.ValueParser;
-import org.spongepowered.api.CatalogType;
-import org.spongepowered.api.Sponge;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.entity.living.player.User;
-import org.spongepowered.api.profile.GameProfile;
-import org.spongepowered.api.service.user.UserStorageService;
 import org.spongepowered.api.world.World;
 
 /**
@@ -20,52 +18,100 @@ import org.spongepowered.api.world.World;
  */
 class SpongeParsers {
 
-    static final ValueParser<Player> PLAYER = s -> {
-        for (Player player : Sponge.getServer().getOnlinePlayers()) {
-            if (Filter.STARTS_WITH.test(player.getName(), s)) {
-                return player;
+    static final SpongeParser<Player> PLAYER = onServerThread(s -> {
+        if (Selectors.isSelector(s)) {
+            Result<List<Player>> players = Selectors.select(s);
+            if (!players.isPresent()) {
+                return Result.failure("%s", players.getMessage());
             }
+            if (players.getValue().size() != 1) {
+                return Result.failure("Selector '%s' matched %s players, expected 1", s, players.getValue().size());
+            }
+            return Result.of(players.getValue().get(0));
         }
-        throw new CommandException("Could not find Player '%s'", s);
-    };
+        Optional<Player> player = PlayerIndex.find(s);
+        if (player.isPresent()) {
+            return Result.of(player.get());
+        }
+        return Result.failure("Could not find Player '%s'%s", s, DidYouMean.of(() -> DidYouMean.scan(PlayerIndex.names(), s)));
+    });
 
-    static final ValueParser<User> USER = s -> {
-        UserStorageService service = Sponge.getServiceManager().provideUnchecked(UserStorageService.class);
-        for (GameProfile profile : service.match(s)) {
-            String name = profile.getName().orElse("");
-            if (name.isEmpty()) {
-                continue;
-            }
-            if (Filter.EQUALS_IGNORE_CASE.test(name, s)) {
-                Optional<User> user = service.get(profile.getUniqueId());
-                if (user.isPresent()) {
-                    return user.get();
+    static final SpongeParser<Selection> SELECTION = onServerThread(s -> {
+        Result<List<Player>> players = Selectors.isSelector(s) ? Selectors.select(s) : Selectors.match(s);
+        if (!players.isPresent()) {
+            return Result.failure("%s", players.getMessage());
+        }
+        if (players.getValue().isEmpty()) {
+            return Result.failure("No players matched '%s'", s);
+        }
+        return Result.of(new Selection(players.getValue()));
+    });
+
+    static final SpongeParser<User> USER = s -> {
+        Optional<Player> player = PlayerIndex.get(s);
+        if (player.isPresent()) {
+            return Result.of(player.get());
+        }
+        Context context = Context.get();
+        Optional<User> user = context == null ? null : context.getUser(s.toLowerCase());
+        if (user == null) {
+            user = UserResolver.cached(s);
+        }
+        if (user == null) {
+            if (context != null && context.isDeferring()) {
+                if (context.isCompletion()) {
+                    return Result.failure("User '%s' is not loaded", s);
                 }
+                // abort the dispatch entirely rather than fail this executor & let another one run instead
+                context.defer(s);
+                throw new Deferral(s);
             }
+            user = UserResolver.load(s);
         }
-        throw new CommandException("Could not find User '%s'", s);
+        if (user.isPresent()) {
+            return Result.of(user.get());
+        }
+        return Result.failure("Could not find User '%s'%s", s, DidYouMean.of(() -> UserIndex.closest(s)));
     };
 
-    static final ValueParser<World> WORLD = s -> {
-        for (World world : Sponge.getServer().getWorlds()) {
+    static final SpongeParser<World> WORLD = onServerThread(s -> {
+        for (World world : Context.worlds()) {
             if (Filter.EQUALS_IGNORE_CASE.test(world.getName(), s)) {
-                return world;
+                return Result.of(world);
             }
         }
-        throw new CommandException("Could not find World '%s'", s);
+        DidYouMean hint = DidYouMean.of(() -> DidYouMean.scan(Context.worlds().stream().map(World::getName), s));
+        return Result.failure("Could not find World '%s'%s", s, hint);
+    });
+
+    static final SpongeParser<Integer> INT = s -> {
+        if (Numbers.isInt(s, 0)) {
+            return Result.of(Numbers.parseInt(s, 0));
+        }
+        return Result.failure("'%s' is not a valid integer", s);
+    };
+
+    static final SpongeParser<Long> LONG = s -> {
+        if (Numbers.isLong(s, 0)) {
+            return Result.of(Numbers.parseLong(s, 0));
+        }
+        return Result.failure("'%s' is not a valid integer", s);
+    };
+
+    static final SpongeParser<Double> DOUBLE = s -> {
+        if (Numbers.isDouble(s, 0)) {
+            return Result.of(Numbers.parseDouble(s, 0));
+        }
+        return Result.failure("'%s' is not a valid number", s);
     };
 
     static final ValueParser<Vector3i> VEC3I = new ValueParser<Vector3i>() {
         @Override
         public Vector3i parse(Input input) throws CommandException {
-            try {
-                int x = Integer.parseInt(input.next());
-                int y = Integer.parseInt(input.next());
-                int z = Integer.parseInt(input.next());
-                return new Vector3i(x, y, z);
-            } catch (NumberFormatException e) {
-                throw new CommandException(e.getMessage());
-            }
+            String x = input.next();
+            String y = input.next();
+            String z = input.next();
+            return parseOnServerThread(() -> Coordinates.vector3i(x, y, z)).get();
         }
 
         @Override
@@ -77,14 +123,10 @@ class SpongeParsers {
     static final ValueParser<Vector3d> VEC3D = new ValueParser<Vector3d>() {
         @Override
         public Vector3d parse(Input input) throws CommandException {
-            try {
-                double x = Double.parseDouble(input.next());
-                double y = Double.parseDouble(input.next());
-                double z = Double.parseDouble(input.next());
-                return new Vector3d(x, y, z);
-            } catch (NumberFormatException e) {
-                throw new CommandException(e.getMessage());
-            }
+            String x = input.next();
+            String y = input.next();
+            String z = input.next();
+            return parseOnServerThread(() -> Coordinates.vector3d(x, y, z)).get();
         }
 
         @Override
@@ -93,23 +135,27 @@ class SpongeParsers {
         }
     };
 
-    @SuppressWarnings("unchecked")
-    static ValueParser<Object> catalogType(Class<?> type) {
-        return new ValueParser<Object>() {
-            @Override
-            public Object parse(Input input) throws CommandException {
-                String s = input.next();
-                Optional<?> val = Sponge.getRegistry().getType((Class<? extends CatalogType>) type, s);
-                if (val.isPresent()) {
-                    return val.get();
-                }
-                throw new CommandException("'%s' is not a valid %s", s, type.getSimpleName());
-            }
-
-            @Override
-            public Object parse(String s) throws CommandException {
-                return parse(new Input(s));
+    static SpongeParser<Object> catalogType(Class<?> type) {
+        return s -> {
+            CatalogTable table = SpongeElementFactory.getCatalogTable(type);
+            Optional<?> val = table.get(s);
+            if (val.isPresent()) {
+                return Result.of(val.get());
             }
+            return Result.failure("'%s' is not a valid %s%s", s, type.getSimpleName(), DidYouMean.of(() -> table.closest(s)));
         };
     }
+
+    // parsers that read server state run on the server thread when the command itself is running on a worker
+    private static <T> SpongeParser<T> onServerThread(SpongeParser<T> parser) {
+        return s -> parseOnServerThread(() -> parser.tryParse(s));
+    }
+
+    private static <T> Result<T> parseOnServerThread(Callable<Result<T>> parse) {
+        try {
+            return Context.onServerThread(parse);
+        } catch (Exception e) {
+            return Result.failure("Unable to read arguments: %s", e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,66 @@
+package me.dags.commandbus;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import me.dags.command.annotation.Command;
+import me.dags.command.annotation.Description;
+import me.dags.command.annotation.Permission;
+import me.dags.command.annotation.Src;
+import me.dags.fmt.Fmt;
+import org.spongepowered.api.command.CommandSource;
+
+/**
+ * The /commandbus commands registered by CommandBus itself.
+ *
+ * @author dags <dags@dags.me>
+ */
+public final class StatsCommands {
+
+    private static final AtomicBoolean registered = new AtomicBoolean(false);
+
+    StatsCommands() {
+
+    }
+
+    /**
+     * Claims the /commandbus commands for a CommandBus. Only the first caller may register them.
+     */
+    static boolean claim() {
+        return registered.compareAndSet(false, true);
+    }
+
+    @Permission("commandbus.stats")
+    @Description("Show command latency stats for all plugins")
+    @Command("commandbus stats")
+    public void stats(@Src CommandSource src) {
+        Map<String, Map<String, Metrics.Stats>> plugins = Metrics.getStats();
+        if (plugins.isEmpty()) {
+            Fmt.info("No commands have been recorded").tell(src);
+            return;
+        }
+        plugins.forEach((plugin, commands) -> tell(src, plugin, commands));
+    }
+
+    @Permission("commandbus.stats")
+    @Description("Show command latency stats for a plugin")
+    @Command("commandbus stats <plugin>")
+    public void stats(@Src CommandSource src, String plugin) {
+        Map<String, Metrics.Stats> commands = Metrics.getStats(plugin);
+        if (commands.isEmpty()) {
+            Fmt.error("No commands have been recorded for ").stress(plugin).tell(src);
+            return;
+        }
+        tell(src, plugin, commands);
+    }
+
+    private static void tell(CommandSource src, String plugin, Map<String, Metrics.Stats> commands) {
+        Fmt.subdued("== ").stress(plugin).subdued(" ==").tell(src);
+        commands.forEach((alias, stats) -> Fmt.stress("/%s", alias)
+                .info(" calls: ").stress(stats.getCalls())
+                .info(" errors: ").stress(stats.getErrors())
+                .info(" mean: ").stress("%.2fms", stats.getExecute().getMeanMillis())
+                .info(" p99: ").stress("%.2fms", stats.getExecute().getPercentileMillis(0.99))
+                .info(" suggest p99: ").stress("%.2fms", stats.getSuggest().getPercentileMillis(0.99))
+                .tell(src));
+    }
+}
@@ -0,0 +1,42 @@
+package me.dags.commandbus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Selects the first k elements (by a comparator) of a sequence without sorting the whole sequence.
+ *
+ * @author dags <dags@dags.me>
+ */
+final class TopK {
+
+    private TopK() {
+
+    }
+
+    static <T> List<T> select(Iterator<T> values, Comparator<? super T> order, int k) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+
+        // a max-heap of the k smallest elements seen so far
+        PriorityQueue<T> heap = new PriorityQueue<>(Math.min(k, 64), order.reversed());
+        while (values.hasNext()) {
+            T value = values.next();
+            if (heap.size() < k) {
+                heap.add(value);
+            } else if (order.compare(value, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(value);
+            }
+        }
+
+        List<T> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
+}
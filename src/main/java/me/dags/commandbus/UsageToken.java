@@ -0,0 +1,43 @@
+package me.dags.commandbus;
+
+/**
+ * Classifies the tokens of a command usage string. Shared by the runtime dispatch tree & the annotation processor
+ * (which compiles this file into its own artifact) so that both read usages the same way.
+ *
+ * @author dags <dags@dags.me>
+ */
+public final class UsageToken {
+
+    public enum Kind {
+        /**
+         * A fixed (sub-)command word.
+         */
+        LITERAL,
+        /**
+         * A positional argument, ie '&lt;name&gt;', '[name]' or '(name)'.
+         */
+        ARGUMENT,
+        /**
+         * A flag, ie '-name', which may appear anywhere after the command's literals.
+         */
+        FLAG
+    }
+
+    private UsageToken() {
+
+    }
+
+    public static Kind of(String token) {
+        char c = token.isEmpty() ? '<' : token.charAt(0);
+        switch (c) {
+            case '<':
+            case '[':
+            case '(':
+                return Kind.ARGUMENT;
+            case '-':
+                return Kind.FLAG;
+            default:
+                return Kind.LITERAL;
+        }
+    }
+}
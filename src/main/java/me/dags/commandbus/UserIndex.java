@@ -0,0 +1,121 @@
+package me.dags.commandbus;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.event.Order;
+import org.spongepowered.api.event.game.state.GameStartedServerEvent;
+import org.spongepowered.api.event.network.ClientConnectionEvent;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.profile.GameProfile;
+import org.spongepowered.api.service.user.UserStorageService;
+
+/**
+ * Keeps a prefix index of the names of all known users. The index is loaded from the UserStorageService once the
+ * server is running, off the main thread, and is then updated as users log in. Only names & unique ids are held, never User objects.
+ *
+ * @author dags <dags@dags.me>
+ */
+class UserIndex {
+
+    private static final Comparator<String> byLength = Comparator.comparingInt(String::length);
+    private static final Comparator<String> byLengthThenName = byLength.thenComparing(String.CASE_INSENSITIVE_ORDER);
+
+    private static final NameIndex names = new NameIndex();
+    private static final Map<UUID, String> ids = new ConcurrentHashMap<>();
+    private static final FuzzyIndex<String> fuzzy = new FuzzyIndex<>();
+    // all known names, kept in order as they are added so completion never has to sort them
+    private static final NavigableSet<String> sorted = new ConcurrentSkipListSet<>(byLengthThenName);
+
+    static void register(PluginContainer plugin) {
+        Sponge.getEventManager().registerListener(plugin, ClientConnectionEvent.Login.class, Order.POST, e -> {
+            if (!e.isCancelled()) {
+                add(e.getProfile());
+            }
+        });
+        Sponge.getEventManager().registerListener(plugin, ClientConnectionEvent.Join.class, Order.PRE, e -> {
+            add(e.getTargetEntity().getName(), e.getTargetEntity().getUniqueId());
+        });
+        if (Sponge.isServerAvailable()) {
+            scheduleLoad(plugin);
+        } else {
+            // user storage isn't available until the server has started
+            Sponge.getEventManager().registerListener(plugin, GameStartedServerEvent.class, e -> scheduleLoad(plugin));
+        }
+    }
+
+    private static void scheduleLoad(PluginContainer plugin) {
+        Sponge.getScheduler().createTaskBuilder()
+                .async()
+                .name("commandbus-user-index")
+                .execute(UserIndex::load)
+                .submit(plugin);
+    }
+
+    /**
+     * Up to 'limit' known user names starting with the given prefix; online users first, then by name length.
+     */
+    static Stream<String> names(String prefix, int limit) {
+        List<String> online = TopK.select(PlayerIndex.names(prefix).iterator(), byLength, limit);
+        int remaining = limit - online.size();
+        if (remaining <= 0) {
+            return online.stream();
+        }
+
+        Stream<String> offline;
+        if (prefix.isEmpty()) {
+            offline = sorted.stream().filter(name -> !PlayerIndex.isOnline(name)).limit(remaining);
+        } else {
+            Iterator<String> matches = names.prefix(prefix)
+                    .map(NameIndex.Entry::getName)
+                    .filter(name -> !PlayerIndex.isOnline(name))
+                    .iterator();
+            offline = TopK.select(matches, byLength, remaining).stream();
+        }
+
+        return Stream.concat(online.stream(), offline);
+    }
+
+    /**
+     * The known user names closest to the given (mistyped) name.
+     */
+    static List<String> closest(String name) {
+        return fuzzy.search(name, FuzzyIndex.tolerance(name), DidYouMean.LIMIT);
+    }
+
+    private static void load() {
+        UserStorageService service = Sponge.getServiceManager().provideUnchecked(UserStorageService.class);
+        for (GameProfile profile : service.getAll()) {
+            add(profile);
+        }
+    }
+
+    private static void add(GameProfile profile) {
+        profile.getName().ifPresent(name -> add(name, profile.getUniqueId()));
+    }
+
+    private static void add(String name, UUID id) {
+        if (name.isEmpty()) {
+            return;
+        }
+        String previous = ids.put(id, name);
+        if (name.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            names.remove(previous, id);
+            sorted.remove(previous);
+            fuzzy.remove(previous, previous);
+        }
+        names.put(name, id);
+        sorted.add(name);
+        fuzzy.add(name, name);
+    }
+}
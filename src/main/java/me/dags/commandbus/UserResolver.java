@@ -0,0 +1,136 @@
+package me.dags.commandbus;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import me.dags.command.element.function.Filter;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.entity.living.player.User;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.profile.GameProfile;
+import org.spongepowered.api.service.user.UserStorageService;
+import org.spongepowered.api.text.Text;
+import org.spongepowered.api.text.format.TextColors;
+
+/**
+ * Loads offline Users off the server thread. The loaded users (and names that could not be found) are handed to the
+ * command which requested them, so that it can be re-run on the server thread without touching storage. They are
+ * also kept in a small LRU for later commands.
+ *
+ * @author dags <dags@dags.me>
+ */
+class UserResolver {
+
+    private static final int CAPACITY = 256;
+    private static final long EXPIRY = TimeUnit.SECONDS.toNanos(60);
+
+    private static final ExecutorService loader = Executors.newFixedThreadPool(2, new Workers("commandbus-users"));
+    private static final Map<String, Loaded> cache = new LinkedHashMap<String, Loaded>(64, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Loaded> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    private final long timeoutMillis;
+
+    UserResolver(long timeout, TimeUnit unit) {
+        this.timeoutMillis = unit.toMillis(timeout);
+    }
+
+    /**
+     * Loads the named users on a worker thread and then passes them, along with the previously loaded users, to the
+     * task on the server thread. If loading takes longer than the timeout the source is sent an error instead.
+     */
+    void resolve(PluginContainer owner, CommandSource source, Collection<String> names, Map<String, Optional<User>> loaded, Consumer<Map<String, Optional<User>>> task) {
+        AtomicBoolean finished = new AtomicBoolean(false);
+        Map<String, Optional<User>> users = new ConcurrentHashMap<>(loaded);
+        CompletableFuture<?>[] loads = names.stream()
+                .map(String::toLowerCase)
+                .distinct()
+                .map(name -> CompletableFuture.runAsync(() -> users.put(name, load(name)), loader))
+                .toArray(CompletableFuture<?>[]::new);
+
+        CompletableFuture.allOf(loads).whenComplete((v, t) -> {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            if (t != null) {
+                owner.getLogger().error("Error loading user data", t);
+                CommandBus.sync(owner, () -> source.sendMessage(Text.of(TextColors.RED, "Error loading user data")));
+            } else {
+                Map<String, Optional<User>> pinned = new HashMap<>(users);
+                CommandBus.sync(owner, () -> task.accept(pinned));
+            }
+        });
+
+        Sponge.getScheduler().createTaskBuilder()
+                .delay(timeoutMillis, TimeUnit.MILLISECONDS)
+                .execute(() -> {
+                    if (finished.compareAndSet(false, true)) {
+                        source.sendMessage(Text.of(TextColors.RED, "Timed out loading user data, please try again"));
+                    }
+                })
+                .submit(owner);
+    }
+
+    /**
+     * Returns the user with the given name if it has been loaded recently, an empty optional if it was recently
+     * found not to exist, or null if it has not been looked up.
+     */
+    @Nullable
+    static Optional<User> cached(String name) {
+        synchronized (cache) {
+            Loaded loaded = cache.get(name.toLowerCase());
+            if (loaded == null) {
+                return null;
+            }
+            if (System.nanoTime() - loaded.timestamp > EXPIRY) {
+                cache.remove(name.toLowerCase());
+                return null;
+            }
+            return loaded.user;
+        }
+    }
+
+    /**
+     * Looks up the user in storage (which may read from disk) and caches the outcome.
+     */
+    static Optional<User> load(String name) {
+        UserStorageService service = Sponge.getServiceManager().provideUnchecked(UserStorageService.class);
+        Optional<User> user = Optional.empty();
+        for (GameProfile profile : service.match(name)) {
+            if (Filter.EQUALS_IGNORE_CASE.test(profile.getName().orElse(""), name)) {
+                user = service.get(profile.getUniqueId());
+                if (user.isPresent()) {
+                    break;
+                }
+            }
+        }
+        synchronized (cache) {
+            cache.put(name.toLowerCase(), new Loaded(user));
+        }
+        return user;
+    }
+
+    private static class Loaded {
+
+        private final Optional<User> user;
+        private final long timestamp = System.nanoTime();
+
+        private Loaded(Optional<User> user) {
+            this.user = user;
+        }
+    }
+}